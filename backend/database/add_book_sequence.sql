@@ -0,0 +1,15 @@
+-- ===================================================
+-- Pooled book ids: Hibernate reserves blocks of 50 ids from books_seq
+-- instead of relying on AUTO_INCREMENT, so inserts can be batched.
+-- The application also moves next_val past MAX(id) on startup.
+-- ===================================================
+
+USE thuvien_db;
+
+CREATE TABLE IF NOT EXISTS books_seq (
+    next_val BIGINT
+) ENGINE=InnoDB;
+
+INSERT INTO books_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50 FROM books
+WHERE NOT EXISTS (SELECT 1 FROM books_seq);
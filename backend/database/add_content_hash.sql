@@ -0,0 +1,3 @@
+-- SHA-256 of the uploaded PDF, used to detect duplicate uploads (see BookService.uploadBook)
+ALTER TABLE books ADD COLUMN content_hash CHAR(64) AFTER book_path;
+ALTER TABLE books ADD INDEX idx_content_hash (content_hash);
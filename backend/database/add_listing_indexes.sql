@@ -0,0 +1,7 @@
+-- Composite indexes backing keyset pagination on GET /api/books?limit=...
+-- Rows with NULL sort keys would be skipped by keyset predicates, so backfill them first
+UPDATE books SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+UPDATE books SET views = 0 WHERE views IS NULL;
+
+ALTER TABLE books ADD INDEX idx_created_at_id (created_at, id);
+ALTER TABLE books ADD INDEX idx_views_id (views, id);
@@ -0,0 +1,7 @@
+-- Thumbnail job queue state (see ThumbnailJobService)
+ALTER TABLE books ADD COLUMN thumbnail_status VARCHAR(20) AFTER thumbnail_path;
+ALTER TABLE books ADD COLUMN thumbnail_attempts INT DEFAULT 0 AFTER thumbnail_status;
+ALTER TABLE books ADD INDEX idx_thumbnail_status (thumbnail_status);
+
+-- Existing covers are done; books without one are left NULL for the batch regeneration job
+UPDATE books SET thumbnail_status = 'READY' WHERE thumbnail_path IS NOT NULL AND thumbnail_path <> 'NULL';
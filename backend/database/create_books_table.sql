@@ -17,15 +17,29 @@ CREATE TABLE books (
     author VARCHAR(200),
     category VARCHAR(100),
     book_path VARCHAR(500),
+    content_hash CHAR(64),
+    thumbnail_path VARCHAR(500),
+    thumbnail_status VARCHAR(20),
+    thumbnail_attempts INT DEFAULT 0,
     views BIGINT DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_name (name),
     INDEX idx_author (author),
     INDEX idx_category (category),
-    INDEX idx_views (views)
+    INDEX idx_views (views),
+    INDEX idx_created_at_id (created_at, id),
+    INDEX idx_views_id (views, id),
+    INDEX idx_thumbnail_status (thumbnail_status),
+    UNIQUE INDEX uk_content_hash (content_hash)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Book ids are allocated by Hibernate in blocks of 50 from this table
+CREATE TABLE books_seq (
+    next_val BIGINT
+) ENGINE=InnoDB;
+INSERT INTO books_seq (next_val) VALUES (1);
+
 -- ===================================================
 -- Query Examples
 -- ===================================================
@@ -0,0 +1,13 @@
+-- One book per PDF content: identical uploads return the existing book (see BookService.uploadBook)
+-- Books uploaded twice before this index keep their file; only the oldest keeps the hash
+UPDATE books b
+JOIN (
+    SELECT content_hash, MIN(id) AS keep_id
+    FROM books
+    WHERE content_hash IS NOT NULL
+    GROUP BY content_hash
+    HAVING COUNT(*) > 1
+) d ON b.content_hash = d.content_hash AND b.id <> d.keep_id
+SET b.content_hash = NULL;
+
+ALTER TABLE books DROP INDEX idx_content_hash, ADD UNIQUE INDEX uk_content_hash (content_hash);
@@ -0,0 +1,155 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
+import com.thuvien.service.SearchIndexService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic benchmark data: catalogues with Vietnamese titles and generated PDFs.
+ */
+final class Fixtures {
+
+    private static final String[] TITLE_WORDS = {
+            "Mắt", "Biếc", "Cho", "Tôi", "Xin", "Một", "Vé", "Đi", "Tuổi", "Thơ", "Thấy", "Hoa", "Vàng",
+            "Trên", "Cỏ", "Xanh", "Dế", "Mèn", "Phiêu", "Lưu", "Ký", "Số", "Đỏ", "Truyện", "Kiều", "Tắt",
+            "Đèn", "Chí", "Phèo", "Lão", "Hạc", "Vợ", "Nhặt", "Những", "Ngày", "Thơ", "Ấu", "Người",
+            "Lái", "Đò", "Sông", "Đà", "Chiếc", "Thuyền", "Ngoài", "Xa", "Nỗi", "Buồn", "Chiến", "Tranh",
+            "Đất", "Rừng", "Phương", "Nam", "Bến", "Quê", "Mùa", "Lá", "Rụng", "Trong", "Vườn", "Hà",
+            "Nội", "Băm", "Sáu", "Phố", "Phường", "Gió", "Lạnh", "Đầu", "Làng", "Cô", "Gái", "Đồ", "Long"
+    };
+
+    private static final String[] AUTHORS = {
+            "Nguyễn Nhật Ánh", "Tô Hoài", "Nam Cao", "Vũ Trọng Phụng", "Nguyễn Du", "Ngô Tất Tố",
+            "Kim Lân", "Nguyên Hồng", "Nguyễn Tuân", "Bảo Ninh", "Đoàn Giỏi", "Ma Văn Kháng",
+            "Thạch Lam", "Nguyễn Minh Châu", "Hồ Anh Thái", "Nguyễn Ngọc Tư"
+    };
+
+    private static final String[] CATEGORIES = {
+            "Văn học", "Thiếu nhi", "Lịch sử", "Khoa học", "Kinh tế", "Tâm lý", "Kỹ năng sống",
+            "Truyện ngắn", "Thơ", "Tiểu thuyết"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * A catalogue of books with 2-6 word Vietnamese titles; the same size gives the same books
+     */
+    static List<Book> catalogue(int size) {
+        Random random = new Random(42);
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(' ');
+                }
+                title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+
+            Book book = new Book(title.toString(), AUTHORS[random.nextInt(AUTHORS.length)],
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], "D:\\uploaded_books\\objects\\book_" + i + ".pdf");
+            book.setId((long) i);
+            book.setContentHash(String.format("%064x", i));
+            book.setThumbnailPath("D:\\thumbnails\\book_" + i + ".jpg");
+            book.setThumbnailStatus(ThumbnailStatus.READY);
+            book.setThumbnailAttempts(0);
+            book.setViews((long) random.nextInt(100_000));
+            book.setCreatedAt(created.plusMinutes(i));
+            book.setUpdatedAt(created.plusMinutes(i));
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * A PDF with the given number of text pages and an embedded scan-like image on the cover,
+     * generated once into the temp directory and reused across forks
+     */
+    static Path pdf(int pages) throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "thuvien-jmh-fixtures");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("book_" + pages + "p.pdf");
+        if (Files.exists(file)) {
+            return file;
+        }
+
+        Random random = new Random(pages);
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    if (p == 0) {
+                        PDImageXObject cover = LosslessFactory.createFromImage(document, coverImage(random));
+                        content.drawImage(cover, 50, 250, 495, 540);
+                    }
+                    content.setNonStrokingColor(Color.BLACK);
+                    content.beginText();
+                    content.setFont(font, 11);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, p == 0 ? 220 : 790);
+                    int lines = p == 0 ? 12 : 52;
+                    for (int line = 0; line < lines; line++) {
+                        content.showText(textLine(random));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            Path temp = Files.createTempFile(dir, "book_", ".part");
+            document.save(temp.toFile());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private static BufferedImage coverImage(Random random) {
+        BufferedImage image = new BufferedImage(1240, 1350, BufferedImage.TYPE_INT_RGB);
+        int base = random.nextInt(0xffffff);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                // Gradient plus noise, so the image does not compress to nothing
+                int noise = random.nextInt(32);
+                int r = ((base >> 16) + x / 8 + noise) & 0xff;
+                int g = ((base >> 8) + y / 8 + noise) & 0xff;
+                int b = (base + (x + y) / 16 + noise) & 0xff;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    // Standard 14 fonts only cover WinAnsi, so page text is unaccented
+    private static String textLine(Random random) {
+        StringBuilder line = new StringBuilder();
+        while (line.length() < 80) {
+            String word = SearchIndexService.fold(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            line.append(word).append(' ');
+        }
+        return line.toString();
+    }
+}
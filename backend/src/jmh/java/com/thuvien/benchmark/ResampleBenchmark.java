@@ -0,0 +1,129 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.service.ImageResampler;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image downscaling alone, on the two inputs the app resizes: a first page rendered at
+ * 150 DPI ({@code page}, ~1240x1754) and a decoded 600px JPEG thumbnail ({@code master}).
+ *
+ * {@code getScaledInstance} is the original resize (area averaging through an
+ * ImageProducer), {@code java2d} the progressive bilinear halving with drawImage, and
+ * {@code bilinear}/{@code lanczos3} {@link ImageResampler}. Run with {@code -prof gc} to
+ * compare allocation per resize as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResampleBenchmark {
+
+    @Param({"getScaledInstance", "java2d", "bilinear", "lanczos3"})
+    public String method;
+
+    @Param({"page", "master"})
+    public String source;
+
+    @Param({"120", "300", "600"})
+    public int targetWidth;
+
+    private BufferedImage image;
+    private ImageResampler resampler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BufferedImage page;
+        try (PDDocument document = Loader.loadPDF(Fixtures.pdf(1).toFile())) {
+            page = new PDFRenderer(document).renderImageWithDPI(0, 150, ImageType.RGB);
+        }
+        if (source.equals("page")) {
+            image = page;
+        } else {
+            // Decoded like ThumbnailService.rendition does: TYPE_3BYTE_BGR
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            ImageIO.write(new ImageResampler().resizeToWidth(page, 600), "jpeg", jpeg);
+            image = ImageIO.read(new ByteArrayInputStream(jpeg.toByteArray()));
+        }
+        if (method.equals("bilinear")) {
+            resampler = new ImageResampler(ImageResampler.Filter.BILINEAR);
+        } else if (method.equals("lanczos3")) {
+            resampler = new ImageResampler(ImageResampler.Filter.LANCZOS3);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        int targetHeight = Math.max(1, Math.round((float) image.getHeight() * targetWidth / image.getWidth()));
+        return switch (method) {
+            case "getScaledInstance" -> scaledInstance(image, targetWidth, targetHeight);
+            case "java2d" -> java2dProgressive(image, targetWidth, targetHeight);
+            default -> resampler.resize(image, targetWidth, targetHeight);
+        };
+    }
+
+    // The original ThumbnailService.resizeImage
+    private static BufferedImage scaledInstance(BufferedImage source, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics graphics = resized.getGraphics();
+        graphics.drawImage(source.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+        graphics.dispose();
+        return resized;
+    }
+
+    // The previous ThumbnailService.downscale: halve with bilinear drawImage, then one last step
+    private static BufferedImage java2dProgressive(BufferedImage source, int targetWidth, int targetHeight) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width <= targetWidth) {
+            return source;
+        }
+        BufferedImage current = source;
+        while (width / 2 >= targetWidth) {
+            width /= 2;
+            height = Math.max(1, height / 2);
+            current = drawScaled(current, width, height);
+        }
+        if (width != targetWidth) {
+            current = drawScaled(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage drawScaled(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,81 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.entity.Book;
+import com.thuvien.service.SearchIndexService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword search (name or author) over catalogues of 1k and 100k books.
+ *
+ * {@code indexSearch} is what /api/books/search serves once the index is built;
+ * {@code containsScan} is the in-memory equivalent of the repository's
+ * {@code LIKE '%...%'} fallback, i.e. a full scan per query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogueSize;
+
+    // Exact word with accents, unaccented prefix, author, two words, no match
+    @Param({"Mắt Biếc", "thuyen", "nguyen nhat", "Sông Đà", "khongcokhop"})
+    public String query;
+
+    private List<Book> books;
+    private SearchIndexService searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        books = Fixtures.catalogue(catalogueSize);
+        searchIndex = new SearchIndexService();
+        for (Book book : books) {
+            searchIndex.index(book);
+        }
+    }
+
+    // Index lookup and ranking; loading the matched rows is a database round trip on top
+    @Benchmark
+    public List<Long> indexSearch() {
+        return searchIndex.searchIds(query, SearchIndexService.FIELD_NAME | SearchIndexService.FIELD_AUTHOR, 200);
+    }
+
+    @Benchmark
+    public List<Book> containsScan() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Book> result = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getName().toLowerCase(Locale.ROOT).contains(needle)
+                    || (book.getAuthor() != null && book.getAuthor().toLowerCase(Locale.ROOT).contains(needle))) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    // Cost of keeping the index current on a create/update event
+    @Benchmark
+    public void reindexOne() {
+        searchIndex.index(books.get(books.size() / 2));
+    }
+}
@@ -0,0 +1,152 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.dto.BookSummary;
+import com.thuvien.entity.Book;
+import com.thuvien.service.ThreadSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request handling while an upstream (Drive, a remote thumbnail) is slow: each slow request
+ * blocks for {@code upstreamMs}, standing in for a blocking HTTP call.
+ *
+ * {@code platform} is Tomcat's default 200-thread pool, {@code virtual} a thread per request
+ * as with {@code spring.threads.virtual.enabled}. slowBurst is the time for
+ * {@code slowRequests} concurrent slow requests to finish; cheapRead is the latency of a
+ * cached catalogue read while that many slow requests are kept in flight. The virtual
+ * executor needs Java 21; on older JVMs its runs fail in setup.
+ */
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlowUpstreamBenchmark {
+
+    // server.tomcat.threads.max default
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param({"200", "1000", "4000"})
+    public int slowRequests;
+
+    @Param({"100"})
+    public int upstreamMs;
+
+    private ExecutorService requests;
+    private List<Book> catalogue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (executor.equals("virtual")) {
+            try {
+                requests = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Virtual threads need Java 21, running " + Runtime.version());
+            }
+        } else {
+            requests = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS, ThreadSupport.platformThreadFactory("http-nio-exec-"));
+        }
+        catalogue = Fixtures.catalogue(1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requests.shutdownNow();
+    }
+
+    /**
+     * Keeps {@code slowRequests} slow requests in flight for the whole iteration
+     */
+    @State(Scope.Benchmark)
+    public static class SlowLoad {
+
+        private Thread feeder;
+
+        @Setup(Level.Iteration)
+        public void start(SlowUpstreamBenchmark benchmark) {
+            Semaphore inFlight = new Semaphore(benchmark.slowRequests);
+            feeder = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        inFlight.acquire();
+                        benchmark.requests.execute(() -> {
+                            try {
+                                benchmark.callUpstream();
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    }
+                } catch (InterruptedException e) {
+                    // Iteration over
+                }
+            }, "slow-load");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() throws InterruptedException {
+            feeder.interrupt();
+            feeder.join();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long slowBurst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(slowRequests);
+        long start = System.nanoTime();
+        for (int i = 0; i < slowRequests; i++) {
+            requests.execute(() -> {
+                try {
+                    callUpstream();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BookSummary cheapRead(SlowLoad load) throws Exception {
+        return requests.submit(() -> {
+            Book book = catalogue.get(ThreadLocalRandom.current().nextInt(catalogue.size()));
+            return BookSummary.of(book);
+        }).get();
+    }
+
+    private void callUpstream() {
+        try {
+            Thread.sleep(upstreamMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.service.ImageResampler;
+import com.thuvien.service.ThumbnailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thumbnail generation: open a PDF, render the first page and resize it to 300px, then
+ * encode the JPEG. {@code memoryBounded=false} renders the page at 150 DPI, {@code true}
+ * renders near the target size; both resize with {@link ImageResampler} (see
+ * ResampleBenchmark for the resize alone).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbnailBenchmark {
+
+    private static final int THUMBNAIL_WIDTH = 300;
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    @Param({"true", "false"})
+    public boolean memoryBounded;
+
+    private ThumbnailService thumbnailService;
+    private File pdf;
+    private PDDocument openDocument;
+    private BufferedImage rendered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        thumbnailService = new ThumbnailService();
+        ReflectionTestUtils.setField(thumbnailService, "memoryBounded", memoryBounded);
+        ReflectionTestUtils.setField(thumbnailService, "maxMainMemoryMb", 16L);
+        ReflectionTestUtils.setField(thumbnailService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(thumbnailService, "imageResampler", new ImageResampler());
+        thumbnailService.init();
+        pdf = Fixtures.pdf(pages).toFile();
+        openDocument = thumbnailService.openDocument(pdf);
+        rendered = thumbnailService.renderPage(openDocument, 0, THUMBNAIL_WIDTH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        openDocument.close();
+    }
+
+    // Whole job as ThumbnailJobService runs it: parse + render + resize
+    @Benchmark
+    public BufferedImage openRenderResize() throws IOException {
+        try (PDDocument document = thumbnailService.openDocument(pdf)) {
+            return thumbnailService.renderPage(document, 0, THUMBNAIL_WIDTH);
+        }
+    }
+
+    // Render + resize only, on an already parsed document (reader page renditions)
+    @Benchmark
+    public BufferedImage renderResize() throws IOException {
+        return thumbnailService.renderPage(openDocument, 0, THUMBNAIL_WIDTH);
+    }
+
+    @Benchmark
+    public byte[] encodeJpeg() throws IOException {
+        return thumbnailService.encode(rendered, "jpeg", 0.8f);
+    }
+}
@@ -0,0 +1,77 @@
+package com.thuvien.benchmark;
+
+import com.thuvien.service.ViewCounterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of POST /api/books/{id}/view's counting step under contention.
+ *
+ * Views follow a skewed distribution (a few hot books take most of the traffic), which
+ * is the case the striped counters were introduced for. The database flush is not part
+ * of the measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViewCounterBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"1000", "100000"})
+    public int catalogueSize;
+
+    private ViewCounterService viewCounterService;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        viewCounterService = new ViewCounterService();
+        Random random = new Random(7);
+        ids = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            // Squaring a uniform value skews picks towards low ids (the "trending" books)
+            double u = random.nextDouble();
+            ids[i] = 1 + (long) (u * u * catalogueSize);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new Random().nextInt(SAMPLES);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long incrementSingleThread(Cursor cursor) {
+        return increment(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long incrementEightThreads(Cursor cursor) {
+        return increment(cursor);
+    }
+
+    private long increment(Cursor cursor) {
+        long id = ids[cursor.next++ & (SAMPLES - 1)];
+        return viewCounterService.increment(id);
+    }
+}
@@ -1,12 +1,17 @@
 package com.thuvien.controller;
 
+import com.thuvien.dto.BookPage;
+import com.thuvien.dto.BookSort;
+import com.thuvien.dto.BookSummary;
 import com.thuvien.entity.Book;
 import com.thuvien.service.BookService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,13 +20,42 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class BookController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private BookService bookService;
 
-    // Lấy tất cả sách
+    // Lấy tất cả sách (dạng rút gọn, JSON được stream trong khi đọc DB)
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        return ResponseEntity.ok(bookService.getAllBooks());
+    public ResponseEntity<StreamingResponseBody> getAllBooks() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bookService::writeAllSummaries);
+    }
+
+    // Lấy sách theo trang (keyset): /api/books?limit=24&sort=newest|oldest|views|least_viewed&cursor=...
+    @GetMapping(params = "limit")
+    public ResponseEntity<BookPage<BookSummary>> getBooksPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(bookService.getBooksPage(BookSort.fromParam(sort), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Sách hot: top N theo lượt xem
+    @GetMapping("/trending")
+    public ResponseEntity<List<BookSummary>> getTrendingBooks(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(summaries(bookService.getTrendingBooks(limit)));
     }
 
     // Lấy sách theo ID
@@ -86,37 +120,33 @@ public class BookController {
 
     // Tìm kiếm sách theo tên
     @GetMapping("/search/name")
-    public ResponseEntity<List<Book>> searchByName(@RequestParam String name) {
-        return ResponseEntity.ok(bookService.searchByName(name));
+    public ResponseEntity<List<BookSummary>> searchByName(@RequestParam String name) {
+        return ResponseEntity.ok(summaries(bookService.searchByName(name)));
     }
 
     // Tìm kiếm sách theo tác giả
     @GetMapping("/search/author")
-    public ResponseEntity<List<Book>> searchByAuthor(@RequestParam String author) {
-        return ResponseEntity.ok(bookService.searchByAuthor(author));
+    public ResponseEntity<List<BookSummary>> searchByAuthor(@RequestParam String author) {
+        return ResponseEntity.ok(summaries(bookService.searchByAuthor(author)));
     }
 
     // Tìm kiếm sách theo thể loại
     @GetMapping("/search/category")
-    public ResponseEntity<List<Book>> searchByCategory(@RequestParam String category) {
-        return ResponseEntity.ok(bookService.searchByCategory(category));
+    public ResponseEntity<List<BookSummary>> searchByCategory(@RequestParam String category) {
+        return ResponseEntity.ok(summaries(bookService.searchByCategory(category)));
     }
 
     // Tìm kiếm sách theo từ khóa
     @GetMapping("/search")
-    public ResponseEntity<List<Book>> searchByKeyword(@RequestParam String keyword) {
-        return ResponseEntity.ok(bookService.searchByKeyword(keyword));
+    public ResponseEntity<List<BookSummary>> searchByKeyword(@RequestParam String keyword) {
+        return ResponseEntity.ok(summaries(bookService.searchByKeyword(keyword)));
     }
 
-    // Tăng lượt xem
+    // Tăng lượt xem (đếm trong bộ nhớ, ghi xuống DB theo lô nên chỉ trả về 202)
     @PostMapping("/{id}/view")
-    public ResponseEntity<Book> incrementViews(@PathVariable Long id) {
-        try {
-            Book book = bookService.incrementViews(id);
-            return ResponseEntity.ok(book);
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<Void> incrementViews(@PathVariable Long id) {
+        bookService.incrementViews(id);
+        return ResponseEntity.accepted().build();
     }
 
     // Regenerate thumbnail for existing book
@@ -129,4 +159,8 @@ public class BookController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private List<BookSummary> summaries(List<Book> books) {
+        return books.stream().map(BookSummary::of).toList();
+    }
 }
@@ -1,5 +1,12 @@
 package com.thuvien.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.CompositeHealth;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,6 +18,9 @@ import java.util.Map;
 @RequestMapping("/api")
 public class HomeController {
 
+    @Autowired
+    private HealthEndpoint healthEndpoint;
+
     @GetMapping("/")
     public Map<String, String> home() {
         Map<String, String> response = new HashMap<>();
@@ -19,11 +29,19 @@ public class HomeController {
         return response;
     }
 
+    // Trạng thái sẵn sàng (nhóm readiness); trả 503 khi node không nên nhận traffic
     @GetMapping("/health")
-    public Map<String, String> health() {
+    public ResponseEntity<Map<String, String>> health() {
+        HealthComponent readiness = healthEndpoint.healthForPath("readiness");
+        boolean ready = readiness != null && Status.UP.equals(readiness.getStatus());
+
         Map<String, String> response = new HashMap<>();
-        response.put("status", "healthy");
-        return response;
+        response.put("status", ready ? "healthy" : "unhealthy");
+        if (readiness instanceof CompositeHealth composite) {
+            composite.getComponents().forEach((name, component) ->
+                    response.put(name, component.getStatus().getCode()));
+        }
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
     }
 
 }
@@ -0,0 +1,116 @@
+package com.thuvien.controller;
+
+import com.thuvien.dto.ImportProgress;
+import com.thuvien.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/import")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    // Nhập tất cả file PDF trong một thư mục trên server (thư mục con = thể loại)
+    @PostMapping("/directory")
+    public ResponseEntity<?> importDirectory(
+            @RequestParam("path") String path,
+            @RequestParam(value = "author", required = false) String author,
+            @RequestParam(value = "category", required = false) String category) {
+        try {
+            return accepted(importService.importDirectory(path, author, category));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return error(e);
+        }
+    }
+
+    // Nhập theo file manifest CSV/JSON (name, author, category, path)
+    @PostMapping("/manifest")
+    public ResponseEntity<?> importManifest(
+            @RequestParam("manifest") MultipartFile manifest,
+            @RequestParam(value = "baseDir", required = false) String baseDir) {
+        try {
+            return accepted(importService.importManifest(manifest, baseDir));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return error(e);
+        }
+    }
+
+    // Nhập từ file ZIP: upload trực tiếp (zipFile) hoặc đường dẫn trên server (path)
+    @PostMapping("/zip")
+    public ResponseEntity<?> importZip(
+            @RequestParam(value = "zipFile", required = false) MultipartFile zipFile,
+            @RequestParam(value = "path", required = false) String path,
+            @RequestParam(value = "author", required = false) String author,
+            @RequestParam(value = "category", required = false) String category) {
+        try {
+            if (zipFile != null && !zipFile.isEmpty()) {
+                return accepted(importService.importZip(zipFile, author, category));
+            }
+            if (path != null && !path.isBlank()) {
+                return accepted(importService.importZip(path, author, category));
+            }
+            return ResponseEntity.badRequest().body("Cần file ZIP hoặc đường dẫn");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return error(e);
+        }
+    }
+
+    // Danh sách các lần nhập gần đây
+    @GetMapping
+    public List<ImportProgress> getJobs() {
+        return importService.getJobs();
+    }
+
+    // Tiến độ của một lần nhập
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportProgress> getProgress(@PathVariable String id) {
+        return importService.getProgress(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Hủy một lần nhập (các sách đã lưu được giữ lại)
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<ImportProgress> cancel(@PathVariable String id) {
+        return importService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Chạy lại một lần nhập đã hủy/lỗi, bỏ qua các file đã nhập
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable String id) {
+        try {
+            return importService.resume(id)
+                    .<ResponseEntity<?>>map(this::accepted)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> accepted(ImportProgress progress) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+    }
+
+    private ResponseEntity<?> error(IOException e) {
+        e.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Lỗi khi nhập sách: " + e.getMessage());
+    }
+}
@@ -2,29 +2,120 @@ package com.thuvien.controller;
 
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.thuvien.service.BookService;
+import com.thuvien.service.FileStreamingService;
+import com.thuvien.service.PageRenditionService;
 import com.thuvien.entity.Book;
+import com.thuvien.storage.DriveUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/books")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {
+        HttpHeaders.ACCEPT_RANGES, HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.ETAG,
+        HttpHeaders.RETRY_AFTER, PdfController.PAGE_COUNT_HEADER
+})
 public class PdfController {
 
+    static final String PAGE_COUNT_HEADER = "X-Page-Count";
+
     private final BookService bookService;
+    private final FileStreamingService fileStreamingService;
+    private final PageRenditionService pageRenditionService;
 
-    public PdfController(BookService bookService) {
+    public PdfController(BookService bookService, FileStreamingService fileStreamingService,
+                         PageRenditionService pageRenditionService) {
         this.bookService = bookService;
+        this.fileStreamingService = fileStreamingService;
+        this.pageRenditionService = pageRenditionService;
+    }
+
+    // Render một trang PDF thành ảnh (WebP nếu client hỗ trợ, ngược lại JPEG); trang tiếp theo được render trước
+    @GetMapping("/{id}/pages/{page}")
+    public ResponseEntity<byte[]> getPage(
+            @PathVariable Long id,
+            @PathVariable int page,
+            @RequestParam(value = "width", required = false) Integer width,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book book = bookService.getBookById(id).orElse(null);
+        if (book == null || book.getBookPath() == null || book.getBookPath().isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            PageRenditionService.RenderedPage rendered = pageRenditionService.getPage(
+                    book, page, PageRenditionService.snapWidth(width), PageRenditionService.negotiateFormat(accept));
+
+            CacheControl cacheControl = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+            if (ifNoneMatch != null && ifNoneMatch.contains(rendered.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(rendered.etag())
+                        .cacheControl(cacheControl)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build();
+            }
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(rendered.contentType()))
+                    .eTag(rendered.etag())
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .header(PAGE_COUNT_HEADER, String.valueOf(rendered.pageCount()))
+                    .body(rendered.bytes());
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (DriveUnavailableException e) {
+            // Drive đang lỗi/quá tải: báo client thử lại sau thay vì giữ request
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Stream PDF with byte-range (206) and conditional (304) support for progressive loading
+    @GetMapping("/{id}/stream")
+    public void streamPdf(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Book book = bookService.getBookById(id).orElse(null);
+        if (book == null || book.getBookPath() == null || book.getBookPath().isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Drive files are served by Google
+        if (book.getBookPath().startsWith("http")) {
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, book.getBookPath());
+            return;
+        }
+
+        Path filePath = Paths.get(book.getBookPath());
+        if (!Files.isRegularFile(filePath)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        fileStreamingService.serve(filePath, MediaType.APPLICATION_PDF_VALUE,
+                "inline; filename=\"" + filePath.getFileName() + "\"", request, response);
     }
 
     @GetMapping("/{id}/pdf")
@@ -0,0 +1,92 @@
+package com.thuvien.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thuvien.service.BookCacheService;
+import com.thuvien.service.PageRenditionService;
+import com.thuvien.service.ThumbnailCacheService;
+import com.thuvien.service.ViewCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    @Autowired
+    private ThumbnailCacheService thumbnailCacheService;
+
+    @Autowired
+    private PageRenditionService pageRenditionService;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    // Trạng thái bộ đếm lượt xem (write-behind)
+    @GetMapping("/views")
+    public Map<String, Object> views() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pendingViews", viewCounterService.getPendingViewsTotal());
+        response.put("pendingBooks", viewCounterService.getPendingBooks());
+        response.put("recordedViews", viewCounterService.getRecordedViews());
+        response.put("flushedViews", viewCounterService.getFlushedViews());
+        response.put("flushCount", viewCounterService.getFlushCount());
+        response.put("failedFlushCount", viewCounterService.getFailedFlushCount());
+        response.put("lastFlushDurationMs", viewCounterService.getLastFlushDurationMs());
+        return response;
+    }
+
+    // Thống kê cache thumbnail
+    @GetMapping("/thumbnails")
+    public Map<String, Object> thumbnails() {
+        CacheStats stats = thumbnailCacheService.getStats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("memoryEntries", thumbnailCacheService.getMemoryEntries());
+        response.put("diskBytes", thumbnailCacheService.getDiskBytes());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        return response;
+    }
+
+    // Thống kê cache trang PDF đã render
+    @GetMapping("/pages")
+    public Map<String, Object> pages() {
+        CacheStats stats = pageRenditionService.getStats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cachedPages", pageRenditionService.getCachedPages());
+        response.put("prefetchQueueDepth", pageRenditionService.getPrefetchQueueDepth());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        return response;
+    }
+
+    // Thống kê cache sách (theo id và theo truy vấn)
+    @GetMapping("/cache")
+    public Map<String, Object> cache() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("books", cacheStats(bookCacheService.getBookStats(), bookCacheService.getCachedBooks()));
+        response.put("queries", cacheStats(bookCacheService.getQueryStats(), bookCacheService.getCachedQueries()));
+        return response;
+    }
+
+    private Map<String, Object> cacheStats(CacheStats stats, long entries) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("entries", entries);
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        return response;
+    }
+}
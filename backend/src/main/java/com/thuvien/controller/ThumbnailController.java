@@ -2,92 +2,190 @@ package com.thuvien.controller;
 
 import com.thuvien.entity.Book;
 import com.thuvien.service.BookService;
+import com.thuvien.service.DriveGuard;
+import com.thuvien.service.PageRenditionService;
+import com.thuvien.service.ThumbnailCacheService;
+import com.thuvien.service.ThumbnailService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URI;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/thumbnails")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class ThumbnailController {
 
     private static final String THUMBNAIL_DIR = "D:\\thumbnails";
-    
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ThumbnailCacheService thumbnailCacheService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    @Value("${thumbnail.fetch.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${thumbnail.fetch.read-timeout-ms:8000}")
+    private int readTimeoutMs;
+
+    // Ảnh bìa theo kích thước (width -> 120/300/600) và định dạng (WebP nếu Accept cho phép), cắt từ ảnh gốc đã lưu
     @GetMapping("/{filename}")
-    public ResponseEntity<?> getThumbnail(@PathVariable String filename) {
+    public ResponseEntity<?> getThumbnail(
+            @PathVariable String filename,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "width", required = false) Integer requestedWidth,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            // Only plain file names, never paths
+            if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            int width = ThumbnailService.snapRenditionWidth(requestedWidth);
+            String format = PageRenditionService.negotiateFormat(accept);
+
+            ThumbnailCacheService.CachedImage master = null;
+            String sourceKey = null;
+            boolean persistent = false;
+            Path localThumbnail = null;
+
             // Extract book ID from filename (e.g., "book_10.jpg" -> 10)
             String idStr = filename.replaceAll("[^0-9]", "");
             if (!idStr.isEmpty()) {
                 Long bookId = Long.parseLong(idStr);
                 Book book = bookService.getBookById(bookId).orElse(null);
-                
+
                 if (book != null && book.getThumbnailPath() != null) {
-                    // If thumbnail is a Drive URL, proxy it
+                    // If thumbnail is a Drive URL, proxy it (cached in memory and on disk)
                     if (book.getThumbnailPath().startsWith("http")) {
                         try {
-                            // Convert /preview to /view for direct image access
-                            String imageUrl = book.getThumbnailPath().replace("/preview", "/view");
-                            URL url = new URL(imageUrl);
-                            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                            connection.setRequestMethod("GET");
-                            connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-                            
-                            InputStream inputStream = connection.getInputStream();
-                            byte[] imageBytes = inputStream.readAllBytes();
-                            inputStream.close();
-                            
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.IMAGE_JPEG)
-                                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                                    .body(imageBytes);
-                        } catch (Exception ex) {
-                            ex.printStackTrace();
+                            String thumbnailUrl = book.getThumbnailPath();
+                            master = thumbnailCacheService.get(thumbnailUrl, true, () -> fetch(thumbnailUrl));
+                            sourceKey = thumbnailUrl;
+                            persistent = true;
+                        } catch (FileNotFoundException ex) {
                             return ResponseEntity.notFound().build();
+                        } catch (Exception ex) {
+                            // Drive chậm hoặc lỗi: dùng bản local nếu có, không thì ảnh placeholder
+                            System.err.println("Failed to fetch thumbnail of book " + bookId + ": " + ex.getMessage());
+                            Path fallback = Paths.get(THUMBNAIL_DIR, filename);
+                            if (!Files.isRegularFile(fallback)) {
+                                return placeholder();
+                            }
+                            localThumbnail = fallback;
                         }
+                    } else if (Files.isRegularFile(Paths.get(book.getThumbnailPath()))) {
+                        localThumbnail = Paths.get(book.getThumbnailPath());
                     }
                 }
             }
-            
-            // For local files, serve from filesystem
-            Path filePath = Paths.get(THUMBNAIL_DIR, filename);
-            File file = filePath.toFile();
 
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
+            // For local files, serve from filesystem (cached in memory)
+            if (master == null) {
+                // Duplicate uploads share the original book's thumbnail file
+                Path filePath = localThumbnail != null ? localThumbnail : Paths.get(THUMBNAIL_DIR, filename);
+                if (!Files.exists(filePath)) {
+                    return ResponseEntity.notFound().build();
+                }
+
+                // Modification time in the key: a regenerated file is a new cache entry
+                sourceKey = filePath + "@" + Files.getLastModifiedTime(filePath).toMillis();
+                master = thumbnailCacheService.get(sourceKey, false, () -> Files.readAllBytes(filePath));
             }
 
-            Resource resource = new FileSystemResource(file);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "image/jpeg";
+            // Each size/format is derived once from the stored thumbnail, then cached like it
+            byte[] masterBytes = master.bytes();
+            ThumbnailCacheService.CachedImage image = thumbnailCacheService.get(
+                    sourceKey + "#" + width + "." + format, persistent,
+                    () -> thumbnailService.rendition(masterBytes, width, format));
+
+            // Versioned URLs (?v=...) never change content; unversioned ones are revalidated by ETag
+            CacheControl cacheControl = version != null && !version.isEmpty()
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.noCache().cachePublic();
+
+            if (ifNoneMatch != null && matches(ifNoneMatch, image.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(image.etag())
+                        .cacheControl(cacheControl)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build();
             }
 
             return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
+                    .contentType(MediaType.parseMediaType("image/" + format))
+                    .eTag(image.etag())
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
+                    .body(image.bytes());
 
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    // Ảnh thay thế không được cache, để lần sau lấy lại ảnh thật
+    private ResponseEntity<byte[]> placeholder() throws IOException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.noStore())
+                .body(thumbnailService.getPlaceholder());
+    }
+
+    private byte[] fetch(String thumbnailUrl) throws IOException {
+        try {
+            return driveGuard.call(DriveGuard.Operation.THUMBNAIL, () -> {
+                // Convert /preview to /view for direct image access
+                String imageUrl = thumbnailUrl.replace("/preview", "/view");
+                URL url = new URL(imageUrl);
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("GET");
+                connection.setRequestProperty("User-Agent", "Mozilla/5.0");
+                connection.setConnectTimeout(connectTimeoutMs);
+                connection.setReadTimeout(readTimeoutMs);
+
+                try (InputStream inputStream = connection.getInputStream()) {
+                    return inputStream.readAllBytes();
+                }
+            });
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,72 @@
+package com.thuvien.controller;
+
+import com.thuvien.dto.RegenerationProgress;
+import com.thuvien.dto.RegenerationScope;
+import com.thuvien.service.ThumbnailRegenerationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/thumbnails/regenerate")
+@CrossOrigin(origins = "*")
+public class ThumbnailRegenerationController {
+
+    @Autowired
+    private ThumbnailRegenerationService regenerationService;
+
+    // Tạo lại thumbnail hàng loạt: scope = missing (mặc định), stale hoặc all; fromId = bắt đầu sau id này
+    @PostMapping
+    public ResponseEntity<?> start(
+            @RequestParam(value = "scope", required = false) String scope,
+            @RequestParam(value = "fromId", defaultValue = "0") long fromId) {
+        try {
+            return accepted(regenerationService.start(RegenerationScope.fromParam(scope), fromId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    // Danh sách các lần tạo lại gần đây
+    @GetMapping
+    public List<RegenerationProgress> getJobs() {
+        return regenerationService.getJobs();
+    }
+
+    // Tiến độ của một lần tạo lại
+    @GetMapping("/{id}")
+    public ResponseEntity<RegenerationProgress> getProgress(@PathVariable String id) {
+        return regenerationService.getProgress(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Hủy (các sách đã vào hàng đợi thumbnail vẫn được xử lý)
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<RegenerationProgress> cancel(@PathVariable String id) {
+        return regenerationService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Chạy tiếp từ cuốn sách cuối cùng đã xử lý
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable String id) {
+        try {
+            return regenerationService.resume(id)
+                    .<ResponseEntity<?>>map(this::accepted)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> accepted(RegenerationProgress progress) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+    }
+}
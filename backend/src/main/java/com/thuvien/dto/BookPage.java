@@ -0,0 +1,14 @@
+package com.thuvien.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param items      the rows of this page, in listing order
+ * @param nextCursor opaque cursor for the following page, or null on the last page
+ * @param hasMore    whether another page follows this one
+ * @param total      approximate catalogue size (cached, may lag recent writes)
+ */
+public record BookPage<T>(List<T> items, String nextCursor, boolean hasMore, long total) {
+}
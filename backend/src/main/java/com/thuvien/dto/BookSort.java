@@ -0,0 +1,33 @@
+package com.thuvien.dto;
+
+/**
+ * Sort orders supported by the paginated book listing.
+ */
+public enum BookSort {
+    NEWEST,
+    OLDEST,
+    VIEWS,
+    LEAST_VIEWED;
+
+    /**
+     * Whether the order is keyed on the view count rather than the creation time.
+     */
+    public boolean byViews() {
+        return this == VIEWS || this == LEAST_VIEWED;
+    }
+
+    /**
+     * Parse the {@code sort} request parameter ("newest", "oldest", "views", "least_viewed").
+     */
+    public static BookSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        for (BookSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value.trim())) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + value);
+    }
+}
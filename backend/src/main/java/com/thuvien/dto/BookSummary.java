@@ -0,0 +1,22 @@
+package com.thuvien.dto;
+
+import com.thuvien.entity.Book;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields a book card needs, for list endpoints.
+ *
+ * Storage paths are left out; {@code hasThumbnail} says whether /api/thumbnails has an
+ * image for the book, and {@code updatedAt} versions that image URL.
+ */
+public record BookSummary(Long id, String name, String author, String category, Long views,
+                          Boolean hasThumbnail, LocalDateTime updatedAt) {
+
+    public static BookSummary of(Book book) {
+        String thumbnailPath = book.getThumbnailPath();
+        boolean hasThumbnail = thumbnailPath != null && !thumbnailPath.isEmpty() && !thumbnailPath.equals("NULL");
+        return new BookSummary(book.getId(), book.getName(), book.getAuthor(), book.getCategory(),
+                book.getViews(), hasThumbnail, book.getUpdatedAt());
+    }
+}
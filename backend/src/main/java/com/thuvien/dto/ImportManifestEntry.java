@@ -0,0 +1,15 @@
+package com.thuvien.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One line of a bulk import manifest (CSV or JSON).
+ *
+ * @param name     book title; when empty, derived from the file name
+ * @param author   author, may be null
+ * @param category category, may be null
+ * @param path     PDF location: relative to the import directory (or ZIP root), or absolute
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportManifestEntry(String name, String author, String category, String path) {
+}
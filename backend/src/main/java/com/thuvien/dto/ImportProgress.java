@@ -0,0 +1,26 @@
+package com.thuvien.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Snapshot of a bulk import job.
+ *
+ * @param id            job id, used by the progress / cancel / resume endpoints
+ * @param source        what is being imported (directory, ZIP or manifest)
+ * @param status        QUEUED, RUNNING, COMPLETED, CANCELLED or FAILED
+ * @param total         number of PDFs found in the source
+ * @param processed     imported + skipped + failed
+ * @param imported      new books created
+ * @param skipped       files whose content hash is already in the catalogue
+ * @param failed        files that could not be read, stored or saved
+ * @param bytes         bytes hashed so far
+ * @param itemsPerSecond processing rate since the job started
+ * @param etaSeconds    estimated time left, or null while unknown
+ * @param errors        the most recent error messages
+ */
+public record ImportProgress(String id, String source, String status,
+                             int total, int processed, int imported, int skipped, int failed, long bytes,
+                             double itemsPerSecond, Long etaSeconds,
+                             LocalDateTime startedAt, LocalDateTime finishedAt, List<String> errors) {
+}
@@ -0,0 +1,30 @@
+package com.thuvien.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Snapshot of a batch thumbnail regeneration job; the latest one is also the on-disk
+ * checkpoint a job is resumed from.
+ *
+ * @param id             job id, used by the progress / cancel / resume endpoints
+ * @param scope          which books are regenerated
+ * @param status         QUEUED, RUNNING, COMPLETED, CANCELLED or FAILED
+ * @param startAfterId   the scan started after this book id (0 for the whole catalogue)
+ * @param cursor         id of the last book scanned and handled; a resumed job starts after it
+ * @param total          books to scan (ids above startAfterId when the job started)
+ * @param scanned        books looked at so far
+ * @param selected       books put on the thumbnail queue
+ * @param regenerated    selected books whose new thumbnail is ready
+ * @param failed         selected books whose thumbnail job gave up
+ * @param pending        selected books still in the thumbnail queue
+ * @param itemsPerSecond thumbnails finished per second since the job started
+ * @param etaSeconds     estimated time left, or null while unknown
+ * @param errors         the most recent error messages
+ */
+public record RegenerationProgress(String id, RegenerationScope scope, String status,
+                                   long startAfterId, long cursor, long total, int scanned, int selected,
+                                   int regenerated, int failed, int pending,
+                                   double itemsPerSecond, Long etaSeconds,
+                                   LocalDateTime startedAt, LocalDateTime finishedAt, List<String> errors) {
+}
@@ -0,0 +1,28 @@
+package com.thuvien.dto;
+
+/**
+ * Which books a batch thumbnail regeneration picks.
+ */
+public enum RegenerationScope {
+    // No thumbnail path (null, blank or "NULL"), a missing local file, or a FAILED job
+    MISSING,
+    // MISSING plus local thumbnails narrower than the current master width
+    STALE,
+    // Every book with a PDF
+    ALL;
+
+    /**
+     * Parse the {@code scope} request parameter ("missing", "stale", "all").
+     */
+    public static RegenerationScope fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return MISSING;
+        }
+        for (RegenerationScope scope : values()) {
+            if (scope.name().equalsIgnoreCase(value.trim())) {
+                return scope;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported scope: " + value);
+    }
+}
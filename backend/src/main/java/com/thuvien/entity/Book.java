@@ -4,11 +4,21 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_views_id", columnList = "views, id"),
+        @Index(name = "idx_thumbnail_status", columnList = "thumbnail_status"),
+        @Index(name = "uk_content_hash", columnList = "content_hash", unique = true)
+})
 public class Book {
 
+    // Ids reserved per round trip to the id table; keep in sync with BookIdSequenceInitializer
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled ids (a table on MySQL) instead of AUTO_INCREMENT, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "name", nullable = false, length = 300)
@@ -23,10 +33,22 @@ public class Book {
     @Column(name = "book_path", length = 500)
     private String bookPath;
 
+    // SHA-256 of the uploaded PDF; unique, so the same PDF is stored once (NULL for books without a known hash)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "thumbnail_path", length = 500)
     private String thumbnailPath;
 
-    @Column(name = "views")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "thumbnail_status", length = 20)
+    private ThumbnailStatus thumbnailStatus;
+
+    @Column(name = "thumbnail_attempts")
+    private Integer thumbnailAttempts = 0;
+
+    // Only written by ViewCounterService's batched increments, never by entity updates
+    @Column(name = "views", updatable = false)
     private Long views = 0L;
 
     @Column(name = "created_at", updatable = false)
@@ -98,6 +120,14 @@ public class Book {
         this.bookPath = bookPath;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public String getThumbnailPath() {
         return thumbnailPath;
     }
@@ -106,6 +136,22 @@ public class Book {
         this.thumbnailPath = thumbnailPath;
     }
 
+    public ThumbnailStatus getThumbnailStatus() {
+        return thumbnailStatus;
+    }
+
+    public void setThumbnailStatus(ThumbnailStatus thumbnailStatus) {
+        this.thumbnailStatus = thumbnailStatus;
+    }
+
+    public Integer getThumbnailAttempts() {
+        return thumbnailAttempts;
+    }
+
+    public void setThumbnailAttempts(Integer thumbnailAttempts) {
+        this.thumbnailAttempts = thumbnailAttempts;
+    }
+
     public Long getViews() {
         return views;
     }
@@ -129,4 +175,18 @@ public class Book {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    // Detached copy, so instances shared through the cache are never mutated
+    public Book copy() {
+        Book copy = new Book(name, author, category, bookPath);
+        copy.setId(id);
+        copy.setContentHash(contentHash);
+        copy.setThumbnailPath(thumbnailPath);
+        copy.setThumbnailStatus(thumbnailStatus);
+        copy.setThumbnailAttempts(thumbnailAttempts);
+        copy.setViews(views);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        return copy;
+    }
 }
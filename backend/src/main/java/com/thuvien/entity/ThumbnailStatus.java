@@ -0,0 +1,11 @@
+package com.thuvien.entity;
+
+/**
+ * Lifecycle of a book's cover thumbnail, driven by the thumbnail job queue
+ */
+public enum ThumbnailStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
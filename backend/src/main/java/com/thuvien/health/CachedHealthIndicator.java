@@ -0,0 +1,90 @@
+package com.thuvien.health;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base for health checks that do I/O (database, disk, Drive).
+ *
+ * A result is reused for {@code ttlMillis()}, so frequent load balancer probes do not each
+ * hit the dependency. The check runs on a separate thread and is reported DOWN if it takes
+ * longer than {@code timeoutMillis()}; a check that hangs is not started again until it
+ * returns, so a stuck dependency cannot pile up threads.
+ */
+abstract class CachedHealthIndicator implements HealthIndicator {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService CHECKS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "health-check-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${health.checks.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Value("${health.checks.timeout-ms:2000}")
+    private long timeoutMs;
+
+    private volatile Health cached;
+    private volatile long checkedAt;
+    private Future<Health> running;
+
+    /**
+     * Run the check; any exception is reported as DOWN
+     */
+    protected abstract Health check() throws Exception;
+
+    protected long ttlMillis() {
+        return ttlMs;
+    }
+
+    protected long timeoutMillis() {
+        return timeoutMs;
+    }
+
+    @Override
+    public Health health() {
+        Health last = cached;
+        if (last != null && isFresh()) {
+            return last;
+        }
+
+        synchronized (this) {
+            if (cached != null && isFresh()) {
+                return cached;
+            }
+            if (running == null || running.isDone()) {
+                running = CHECKS.submit(this::check);
+            }
+
+            Health result;
+            try {
+                result = running.get(timeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                result = Health.down().withDetail("error", "Timed out after " + timeoutMillis() + " ms").build();
+            } catch (ExecutionException e) {
+                result = Health.down().withDetail("error", e.getCause().toString()).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Health.unknown().build();
+            }
+            cached = result;
+            checkedAt = System.nanoTime();
+            return result;
+        }
+    }
+
+    private boolean isFresh() {
+        return System.nanoTime() - checkedAt < TimeUnit.MILLISECONDS.toNanos(ttlMillis());
+    }
+}
@@ -0,0 +1,62 @@
+package com.thuvien.health;
+
+import com.thuvien.service.DriveGuard;
+import com.thuvien.service.StorageService;
+import com.thuvien.storage.DriveClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Validity of the Google Drive access token. An expired token that can still be refreshed
+ * is refreshed here, so the first upload after an idle period does not pay for it; a
+ * revoked or missing token reports DOWN.
+ *
+ * Checked less often than the local dependencies, since a refresh is a call to Google.
+ * Not part of the readiness group: Drive problems degrade every node alike, so they are
+ * no reason to take this one out of rotation. The circuit breaker state is reported as a
+ * detail only.
+ */
+@Component
+public class DriveHealthIndicator extends CachedHealthIndicator {
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    @Value("${health.drive.ttl-ms:60000}")
+    private long driveTtlMs;
+
+    @Value("${health.drive.timeout-ms:5000}")
+    private long driveTimeoutMs;
+
+    @Override
+    protected long ttlMillis() {
+        return driveTtlMs;
+    }
+
+    @Override
+    protected long timeoutMillis() {
+        return driveTimeoutMs;
+    }
+
+    @Override
+    protected Health check() throws Exception {
+        if (!storageService.usesDrive()) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+
+        DriveClient client = storageService.getDriveClient();
+        Instant expiresAt = client.checkToken();
+        return Health.up()
+                .withDetail("client", client.getClass().getSimpleName())
+                .withDetail("tokenExpiresAt", expiresAt != null ? expiresAt.toString() : "unknown")
+                .withDetail("circuit", driveGuard.getCircuitState())
+                .build();
+    }
+}
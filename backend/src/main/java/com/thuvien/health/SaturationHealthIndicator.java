@@ -0,0 +1,103 @@
+package com.thuvien.health;
+
+import com.thuvien.service.ThumbnailService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executor;
+
+/**
+ * Takes the node out of rotation while it is saturated, so the load balancer sheds traffic
+ * before requests queue up and latency explodes.
+ *
+ * Saturated means the Tomcat request pool is nearly all busy, requests are queueing for a
+ * database connection, or (with virtual threads, where the request pool is unbounded) too
+ * many renders are waiting for the render pool. All are read from the pools directly, so
+ * this check is cheap and not cached.
+ */
+@Component
+public class SaturationHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    // Share of request threads busy at which the node stops taking traffic
+    @Value("${health.saturation.request-threads:0.9}")
+    private double maxBusyRatio;
+
+    // Threads waiting for a database connection at which the node stops taking traffic
+    @Value("${health.saturation.db-waiting:5}")
+    private int maxDbWaiting;
+
+    // Renders waiting for the render pool at which the node stops taking traffic
+    @Value("${health.saturation.render-queue:64}")
+    private int maxRenderQueue;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+
+        org.apache.tomcat.util.threads.ThreadPoolExecutor requestPool = requestPool();
+        if (requestPool != null) {
+            int busy = requestPool.getActiveCount();
+            int max = requestPool.getMaximumPoolSize();
+            boolean saturated = busy >= max * maxBusyRatio;
+            builder.withDetail("requestThreadsBusy", busy)
+                    .withDetail("requestThreadsMax", max)
+                    .withDetail("requestPoolSaturated", saturated);
+            if (saturated) {
+                builder.outOfService();
+            }
+        }
+
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            int waiting = pool.getThreadsAwaitingConnection();
+            boolean saturated = waiting >= maxDbWaiting;
+            builder.withDetail("dbConnectionsActive", pool.getActiveConnections())
+                    .withDetail("dbConnectionsMax", hikari.getMaximumPoolSize())
+                    .withDetail("dbThreadsWaiting", waiting)
+                    .withDetail("dbPoolSaturated", saturated);
+            if (saturated) {
+                builder.outOfService();
+            }
+        }
+
+        int renderQueue = thumbnailService.getRenderQueueDepth();
+        boolean renderSaturated = renderQueue >= maxRenderQueue;
+        builder.withDetail("renderQueue", renderQueue).withDetail("renderPoolSaturated", renderSaturated);
+        if (renderSaturated) {
+            builder.outOfService();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tomcat's request executor, or null when requests do not run on a bounded pool
+     */
+    private org.apache.tomcat.util.threads.ThreadPoolExecutor requestPool() {
+        if (applicationContext instanceof WebServerApplicationContext webContext
+                && webContext.getWebServer() instanceof TomcatWebServer tomcat) {
+            Executor executor = tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor();
+            if (executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor pool) {
+                return pool;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.thuvien.health;
+
+import com.thuvien.service.StorageService;
+import com.thuvien.service.ThumbnailJobService;
+import com.thuvien.service.ThumbnailService;
+import com.thuvien.storage.LocalContentStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write probe on the local directories the app writes to: thumbnails, staged PDFs for
+ * thumbnail jobs and, when it is the active backend, the local content store.
+ *
+ * A small file is written, read back and deleted in each; a read-only or full disk shows
+ * up here before uploads start failing.
+ */
+@Component
+public class StorageHealthIndicator extends CachedHealthIndicator {
+
+    private static final byte[] PROBE = "thuvien health probe".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ThumbnailJobService thumbnailJobService;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Override
+    protected Health check() {
+        Map<String, Path> dirs = new LinkedHashMap<>();
+        dirs.put("thumbnails", thumbnailService.getThumbnailDir());
+        dirs.put("thumbnailJobs", thumbnailJobService.getWorkDir());
+        if (storageService.getActive() instanceof LocalContentStore) {
+            dirs.put("books", storageService.getLocalRoot());
+        }
+
+        Health.Builder builder = Health.up();
+        for (Map.Entry<String, Path> dir : dirs.entrySet()) {
+            try {
+                probe(dir.getValue());
+                builder.withDetail(dir.getKey(), dir.getValue() + " writable");
+            } catch (IOException e) {
+                builder.down().withDetail(dir.getKey(), dir.getValue() + " not writable: " + e);
+            }
+        }
+        return builder.build();
+    }
+
+    private void probe(Path dir) throws IOException {
+        Path file = Files.createTempFile(dir, ".health-", ".probe");
+        try {
+            Files.write(file, PROBE);
+            if (Files.size(file) != PROBE.length) {
+                throw new IOException("Probe file was not fully written");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
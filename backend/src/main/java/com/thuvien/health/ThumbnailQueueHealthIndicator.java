@@ -0,0 +1,45 @@
+package com.thuvien.health;
+
+import com.thuvien.service.ThumbnailJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Depth of the thumbnail job queue.
+ *
+ * A full queue alone is normal during a bulk import (the rest waits as PENDING in the
+ * database), so this only reports OUT_OF_SERVICE when jobs are queued, every worker is
+ * busy and none has finished for {@code health.thumbnail-queue.stall-ms}: the workers are
+ * stuck and the node is burning CPU on them.
+ */
+@Component
+public class ThumbnailQueueHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private ThumbnailJobService thumbnailJobService;
+
+    @Value("${health.thumbnail-queue.stall-ms:120000}")
+    private long stallMs;
+
+    @Override
+    public Health health() {
+        int depth = thumbnailJobService.getQueueDepth();
+        int active = thumbnailJobService.getActiveWorkers();
+        int poolSize = thumbnailJobService.getPoolSize();
+        long idleMs = thumbnailJobService.getMillisSinceLastAttempt();
+
+        boolean stalled = depth > 0 && active >= poolSize && idleMs > stallMs;
+        Health.Builder builder = stalled ? Health.outOfService() : Health.up();
+        return builder
+                .withDetail("queueDepth", depth)
+                .withDetail("queueCapacity", thumbnailJobService.getQueueCapacity())
+                .withDetail("activeWorkers", active)
+                .withDetail("poolSize", poolSize)
+                .withDetail("inFlight", thumbnailJobService.getInFlight())
+                .withDetail("msSinceLastJob", idleMs)
+                .build();
+    }
+}
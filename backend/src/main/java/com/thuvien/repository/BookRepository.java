@@ -1,23 +1,150 @@
 package com.thuvien.repository;
 
+import com.thuvien.dto.BookSummary;
 import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
     
-    // Tìm sách theo tên
-    List<Book> findByNameContainingIgnoreCase(String name);
+    // Tìm sách theo tên (giới hạn số kết quả bằng pageable)
+    List<Book> findByNameContainingIgnoreCase(String name, Pageable pageable);
     
     // Tìm sách theo tác giả
-    List<Book> findByAuthorContainingIgnoreCase(String author);
+    List<Book> findByAuthorContainingIgnoreCase(String author, Pageable pageable);
     
     // Tìm sách theo thể loại
-    List<Book> findByCategoryContainingIgnoreCase(String category);
+    List<Book> findByCategoryContainingIgnoreCase(String category, Pageable pageable);
     
     // Tìm sách theo tên hoặc tác giả
-    List<Book> findByNameContainingIgnoreCaseOrAuthorContainingIgnoreCase(String name, String author);
+    List<Book> findByNameContainingIgnoreCaseOrAuthorContainingIgnoreCase(String name, String author, Pageable pageable);
+
+    // Toàn bộ danh sách sách dạng rút gọn, đọc dần từng dòng (không tạo entity)
+    // Fetch size Integer.MIN_VALUE bật chế độ streaming của MySQL chỉ cho truy vấn này
+    @Query("SELECT new com.thuvien.dto.BookSummary(b.id, b.name, b.author, b.category, b.views, "
+            + "CASE WHEN b.thumbnailPath IS NOT NULL AND b.thumbnailPath <> '' AND b.thumbnailPath <> 'NULL' "
+            + "THEN true ELSE false END, b.updatedAt) "
+            + "FROM Book b ORDER BY b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<BookSummary> streamAllSummaries();
+
+    // Trang đầu tiên theo (created_at, id) - mới nhất trước
+    @Query("SELECT b FROM Book b ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findNewest(Pageable pageable);
+
+    // Trang kế tiếp theo (created_at, id), bắt đầu sau con trỏ
+    @Query("SELECT b FROM Book b WHERE b.createdAt < :createdAt "
+            + "OR (b.createdAt = :createdAt AND b.id < :id) "
+            + "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findNewestAfter(@Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable pageable);
+
+    // Trang đầu tiên theo (views, id) - xem nhiều nhất trước
+    @Query("SELECT b FROM Book b ORDER BY b.views DESC, b.id DESC")
+    List<Book> findMostViewed(Pageable pageable);
+
+    // Trang kế tiếp theo (views, id), bắt đầu sau con trỏ
+    @Query("SELECT b FROM Book b WHERE b.views < :views "
+            + "OR (b.views = :views AND b.id < :id) "
+            + "ORDER BY b.views DESC, b.id DESC")
+    List<Book> findMostViewedAfter(@Param("views") Long views,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+
+    // Trang đầu tiên theo (created_at, id) - cũ nhất trước
+    @Query("SELECT b FROM Book b ORDER BY b.createdAt ASC, b.id ASC")
+    List<Book> findOldest(Pageable pageable);
+
+    // Trang kế tiếp theo (created_at, id) tăng dần, bắt đầu sau con trỏ
+    @Query("SELECT b FROM Book b WHERE b.createdAt > :createdAt "
+            + "OR (b.createdAt = :createdAt AND b.id > :id) "
+            + "ORDER BY b.createdAt ASC, b.id ASC")
+    List<Book> findOldestAfter(@Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable pageable);
+
+    // Trang đầu tiên theo (views, id) - xem ít nhất trước
+    @Query("SELECT b FROM Book b ORDER BY b.views ASC, b.id ASC")
+    List<Book> findLeastViewed(Pageable pageable);
+
+    // Trang kế tiếp theo (views, id) tăng dần, bắt đầu sau con trỏ
+    @Query("SELECT b FROM Book b WHERE b.views > :views "
+            + "OR (b.views = :views AND b.id > :id) "
+            + "ORDER BY b.views ASC, b.id ASC")
+    List<Book> findLeastViewedAfter(@Param("views") Long views,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    // Lượt xem đã lưu của một nhóm sách: mỗi dòng là [id, views]
+    @Query("SELECT b.id, b.views FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Sách đã có cùng nội dung PDF (phát hiện upload trùng)
+    Optional<Book> findFirstByContentHashOrderByIdAsc(String contentHash);
+
+    // Đã có sách với nội dung PDF này chưa (nhập hàng loạt bỏ qua file đã nhập)
+    boolean existsByContentHash(String contentHash);
+
+    // Số sách dùng chung một thumbnail
+    long countByThumbnailPath(String thumbnailPath);
+
+    // Quét sách theo id (keyset), dùng cho job tạo lại thumbnail hàng loạt
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Số sách có id lớn hơn id cho trước (tổng số sách cần quét)
+    long countByIdGreaterThan(Long id);
+
+    // Sách có thumbnail đang chờ xử lý (hàng đợi thumbnail lưu trong DB)
+    List<Book> findByThumbnailStatusInOrderByIdAsc(Collection<ThumbnailStatus> statuses, Pageable pageable);
+
+    // Cập nhật thumbnail mà không ghi đè các cột khác
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.thumbnailPath = :thumbnailPath, b.thumbnailStatus = :status, "
+            + "b.updatedAt = :updatedAt WHERE b.id = :id")
+    int updateThumbnail(@Param("id") Long id,
+                        @Param("thumbnailPath") String thumbnailPath,
+                        @Param("status") ThumbnailStatus status,
+                        @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Cập nhật trạng thái job thumbnail
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.thumbnailStatus = :status, b.thumbnailAttempts = :attempts, "
+            + "b.updatedAt = b.updatedAt WHERE b.id = :id")
+    int updateThumbnailStatus(@Param("id") Long id,
+                              @Param("status") ThumbnailStatus status,
+                              @Param("attempts") int attempts);
+
+    // Sách có file PDF nằm dưới thư mục cho trước (PDF còn chờ chuyển lên Drive)
+    List<Book> findByBookPathStartingWithOrderByIdAsc(String prefix, Pageable pageable);
+
+    // Sách dùng chung một file PDF
+    List<Book> findByBookPath(String bookPath);
+
+    // Đổi vị trí file PDF cho mọi sách đang trỏ tới vị trí cũ
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET b.bookPath = :newPath WHERE b.bookPath = :oldPath")
+    int replaceBookPath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
 }
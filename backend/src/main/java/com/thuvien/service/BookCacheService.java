@@ -0,0 +1,200 @@
+package com.thuvien.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of {@link BookRepository}.
+ *
+ * Books are cached by id and query results (listings, searches) by query key, both bounded
+ * by size and TTL. A {@link BookChangedEvent} evicts that book and clears the query results,
+ * since any write can change which books a query matches. Flushed view counts are applied
+ * to cached books in place instead of evicting them, so hot books stay cached.
+ *
+ * A book is loaded outside the cache and only inserted if no view flush and no change
+ * event ran while it was read: otherwise a row read after a flush committed would get the
+ * same delta applied again, or a row read before an update would outlive its eviction.
+ *
+ * Cached books are shared between requests: callers must {@link Book#copy()} before mutating.
+ */
+@Service
+public class BookCacheService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${books.cache.max-books:10000}")
+    private long maxBooks;
+
+    @Value("${books.cache.book-ttl-ms:300000}")
+    private long bookTtlMs;
+
+    @Value("${books.cache.max-queries:1000}")
+    private long maxQueries;
+
+    @Value("${books.cache.query-ttl-ms:30000}")
+    private long queryTtlMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    private Cache<Long, Book> books;
+    private Cache<String, List<Book>> queries;
+
+    // Bumped before every eviction by a change event; a load that saw it move is not cached
+    private final AtomicLong changes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        books = Caffeine.newBuilder()
+                .maximumSize(maxBooks)
+                .expireAfterWrite(Duration.ofMillis(bookTtlMs))
+                .recordStats()
+                .build();
+        queries = Caffeine.newBuilder()
+                .maximumSize(maxQueries)
+                .expireAfterWrite(Duration.ofMillis(queryTtlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, books, "books");
+        CaffeineCacheMetrics.monitor(meterRegistry, queries, "book-queries");
+    }
+
+    /**
+     * Get a book by id, loading it from the database on a miss. Missing books are not cached.
+     */
+    public Optional<Book> getBook(Long id) {
+        Book cached = books.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long flushVersion = viewCounterService.getFlushVersion();
+        long change = changes.get();
+        Book loaded = bookRepository.findById(id).orElse(null);
+        if (loaded != null && flushVersion % 2 == 0) {
+            // Checked inside compute: onViewsFlushed and onBookChanged take the same entry lock
+            books.asMap().compute(id, (key, current) -> {
+                if (current != null) {
+                    return current;
+                }
+                boolean unchanged = viewCounterService.getFlushVersion() == flushVersion && changes.get() == change;
+                return unchanged ? loaded : null;
+            });
+        }
+        return Optional.ofNullable(loaded);
+    }
+
+    /**
+     * Get several books by id: cached ones from memory, the rest with one database query
+     * @return Found books by id; missing ids are left out
+     */
+    public Map<Long, Book> getBooks(Collection<Long> ids) {
+        Map<Long, Book> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            Book cached = books.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return found;
+        }
+
+        long flushVersion = viewCounterService.getFlushVersion();
+        long change = changes.get();
+        for (Book loaded : bookRepository.findAllById(misses)) {
+            found.put(loaded.getId(), loaded);
+            if (flushVersion % 2 == 0) {
+                books.asMap().compute(loaded.getId(), (key, current) -> {
+                    if (current != null) {
+                        return current;
+                    }
+                    boolean unchanged = viewCounterService.getFlushVersion() == flushVersion && changes.get() == change;
+                    return unchanged ? loaded : null;
+                });
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the result of a query, running {@code loader} on a miss
+     * @param key Identifies the query and its arguments, e.g. "author:nguyen"
+     */
+    public List<Book> getQuery(String key, Supplier<List<Book>> loader) {
+        List<Book> cached = queries.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long change = changes.get();
+        List<Book> loaded = List.copyOf(loader.get());
+        queries.asMap().compute(key, (k, current) -> {
+            if (current != null) {
+                return current;
+            }
+            return changes.get() == change ? loaded : null;
+        });
+        return loaded;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        changes.incrementAndGet();
+        books.invalidate(event.bookId());
+        queries.invalidateAll();
+    }
+
+    @EventListener
+    public void onViewsFlushed(ViewsFlushedEvent event) {
+        // Copy on write: instances already handed out are left untouched
+        event.deltas().forEach((id, delta) -> books.asMap().computeIfPresent(id, (key, book) -> {
+            Book updated = book.copy();
+            updated.setViews((book.getViews() != null ? book.getViews() : 0L) + delta);
+            return updated;
+        }));
+    }
+
+    public CacheStats getBookStats() {
+        return books.stats();
+    }
+
+    public CacheStats getQueryStats() {
+        return queries.stats();
+    }
+
+    public long getCachedBooks() {
+        return books.estimatedSize();
+    }
+
+    public long getCachedQueries() {
+        return queries.estimatedSize();
+    }
+}
@@ -0,0 +1,19 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+
+/**
+ * Published after a book row is written, so in-memory copies (catalogue cache,
+ * search index, trending leaderboard) can update themselves.
+ *
+ * @param book The book as just saved, or null when it is not loaded (deletes, failed thumbnails)
+ */
+public record BookChangedEvent(Long bookId, Type type, Book book) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        THUMBNAIL
+    }
+}
@@ -0,0 +1,42 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the book id table ({@code books_seq}) past the ids already in use.
+ *
+ * Books used AUTO_INCREMENT ids before the pooled generator, and the table Hibernate
+ * creates starts at 1. The pooled optimizer hands out the block ending at the value it
+ * reads, so the stored value must be at least {@code MAX(id) + allocationSize}.
+ */
+@Component
+public class BookIdSequenceInitializer {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Runs after Hibernate has created/updated the schema, before any request is served
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void init() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM books", Long.class);
+        long floor = (maxId != null ? maxId : 0L) + Book.ID_ALLOCATION_SIZE;
+
+        int updated = jdbcTemplate.update("UPDATE books_seq SET next_val = ? WHERE next_val < ?", floor, floor);
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books_seq", Integer.class);
+        if (rows == null || rows == 0) {
+            jdbcTemplate.update("INSERT INTO books_seq (next_val) VALUES (?)", floor);
+            updated = 1;
+        }
+        if (updated > 0) {
+            System.out.println("Book id table moved to " + floor + " (max id " + maxId + ")");
+        }
+    }
+}
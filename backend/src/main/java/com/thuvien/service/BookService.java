@@ -1,148 +1,253 @@
 package com.thuvien.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thuvien.dto.BookPage;
+import com.thuvien.dto.BookSort;
+import com.thuvien.dto.BookSummary;
 import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
 import com.thuvien.repository.BookRepository;
+import com.thuvien.storage.StorageBackend;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.security.GeneralSecurityException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class BookService {
 
+    // books.operations{operation, exception}: latency percentiles per operation in Prometheus
+    private static final String OPERATIONS = "books.operations";
+
     @Autowired
     private BookRepository bookRepository;
 
     @Autowired
     private ThumbnailService thumbnailService;
 
-    @Autowired(required = false)
-    private GoogleDriveService googleDriveService;
+    @Autowired
+    private ThumbnailJobService thumbnailJobService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private StorageOffloadService storageOffloadService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Searches return at most this many books, best matches first
+    @Value("${books.search.max-results:200}")
+    private int searchLimit;
 
-    @Autowired(required = false)
-    private GoogleDriveOAuthService googleDriveOAuthService;
+    // Total count is cached so paginated listings don't run COUNT(*) per request
+    @Value("${books.count.cache-ttl-ms:60000}")
+    private long totalCountTtlMs;
 
-    @Value("${google.drive.enabled:false}")
-    private boolean googleDriveEnabled;
+    private volatile long cachedTotalCount = -1;
+    private volatile long cachedTotalCountAt;
 
-    @Value("${google.drive.use.oauth:true}")
-    private boolean useOAuth;
+    // Ghi toàn bộ danh sách sách (dạng rút gọn) ra JSON, đọc từ DB theo từng đợt
+    @Timed(value = OPERATIONS, extraTags = {"operation", "list"})
+    @Transactional(readOnly = true)
+    public void writeAllSummaries(OutputStream out) throws IOException {
+        // Rows are serialized as they arrive, so neither the result set nor the JSON is held in memory
+        try (Stream<BookSummary> summaries = bookRepository.streamAllSummaries();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // Leave the response stream to the container, and never close a half-written array as if complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+            Iterator<BookSummary> iterator = summaries.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+            }
+            generator.writeEndArray();
+        }
+    }
 
-    // Upload directory (for local storage)
-    private static final String UPLOAD_DIR = "D:\\uploaded_books\\";
+    // Lấy một trang sách (keyset pagination)
+    @Timed(value = OPERATIONS, extraTags = {"operation", "page"})
+    public BookPage<BookSummary> getBooksPage(BookSort sort, String cursor, int limit) {
+        // Fetch one extra row to know whether another page follows
+        PageRequest window = PageRequest.of(0, limit + 1);
+        List<Book> rows;
+
+        if (cursor == null || cursor.isEmpty()) {
+            rows = switch (sort) {
+                case NEWEST -> bookRepository.findNewest(window);
+                case OLDEST -> bookRepository.findOldest(window);
+                case VIEWS -> bookRepository.findMostViewed(window);
+                case LEAST_VIEWED -> bookRepository.findLeastViewed(window);
+            };
+        } else if (sort.byViews()) {
+            String[] key = decodeCursor(cursor);
+            long views = parseLong(key[0]);
+            long id = parseLong(key[1]);
+            rows = sort == BookSort.VIEWS
+                    ? bookRepository.findMostViewedAfter(views, id, window)
+                    : bookRepository.findLeastViewedAfter(views, id, window);
+        } else {
+            String[] key = decodeCursor(cursor);
+            LocalDateTime createdAt;
+            try {
+                createdAt = LocalDateTime.parse(key[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            long id = parseLong(key[1]);
+            rows = sort == BookSort.NEWEST
+                    ? bookRepository.findNewestAfter(createdAt, id, window)
+                    : bookRepository.findOldestAfter(createdAt, id, window);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<Book> items = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Book last = items.get(items.size() - 1);
+            Object sortKey = sort.byViews() ? last.getViews() : last.getCreatedAt();
+            nextCursor = encodeCursor(sortKey, last.getId());
+        }
+
+        return new BookPage<>(items.stream().map(BookSummary::of).toList(), nextCursor, hasMore, getTotalCount());
+    }
 
-    static {
-        // Create upload directory if not exists
-        File uploadDir = new File(UPLOAD_DIR);
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
+    // Tổng số sách (có cache)
+    public long getTotalCount() {
+        long now = System.currentTimeMillis();
+        long total = cachedTotalCount;
+        if (total < 0 || now - cachedTotalCountAt > totalCountTtlMs) {
+            total = bookRepository.count();
+            cachedTotalCount = total;
+            cachedTotalCountAt = now;
         }
+        return total;
     }
 
-    // Lấy tất cả sách
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    private void invalidateTotalCount() {
+        cachedTotalCount = -1;
+    }
+
+    // Cursor = base64url("<sort key>|<id>"); package-private for tests
+    static String encodeCursor(Object sortKey, Long id) {
+        String raw = sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] key = raw.split("\\|");
+            if (key.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return key;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 
     // Lấy sách theo ID
+    @Timed(value = OPERATIONS, extraTags = {"operation", "get"})
     public Optional<Book> getBookById(Long id) {
-        return bookRepository.findById(id);
+        return bookCacheService.getBook(id);
     }
 
     // Thêm sách mới
+    @Timed(value = OPERATIONS, extraTags = {"operation", "create"})
     public Book createBook(Book book) {
-        // Save book first to get ID
+        boolean hasPdf = book.getBookPath() != null && !book.getBookPath().isEmpty();
+        if (hasPdf) {
+            book.setThumbnailStatus(ThumbnailStatus.PENDING);
+        }
+
         Book savedBook = bookRepository.save(book);
+        invalidateTotalCount();
         
-        // Generate thumbnail if PDF path exists
-        if (savedBook.getBookPath() != null && !savedBook.getBookPath().isEmpty()) {
-            String thumbnailPath = thumbnailService.generateThumbnail(
-                savedBook.getBookPath(), 
-                savedBook.getId()
-            );
-            if (thumbnailPath != null) {
-                savedBook.setThumbnailPath(thumbnailPath);
-                savedBook = bookRepository.save(savedBook);
-            }
+        // Thumbnail is rendered in the background
+        if (hasPdf) {
+            thumbnailJobService.submit(savedBook.getId());
         }
         
+        eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId(), BookChangedEvent.Type.CREATED, savedBook));
         return savedBook;
     }
 
     // Upload sách với file PDF
+    @Timed(value = OPERATIONS, extraTags = {"operation", "upload"})
     public Book uploadBook(MultipartFile pdfFile, String name, String author, String category) throws IOException {
-        try {
-            String sanitizedName = name.replaceAll("[^a-zA-Z0-9\\s\\-_]", "")
-                                       .replaceAll("\\s+", "-");
-            String timestamp = String.valueOf(System.currentTimeMillis());
-            String filename = sanitizedName + "_" + timestamp + ".pdf";
-            
-            String bookPath;
-            String thumbnailPath;
-            
-            if (googleDriveEnabled) {
-                // Upload to Google Drive
-                if (useOAuth) {
-                    bookPath = googleDriveOAuthService.uploadFile(pdfFile, filename);
-                } else {
-                    bookPath = googleDriveService.uploadFile(pdfFile, filename);
-                }
-                
-                // Generate thumbnail and upload to Drive
-                // Skip thumbnail for large files (> 25MB) to avoid memory issues
-                if (pdfFile.getSize() > 25 * 1024 * 1024) {
-                    System.out.println("File size > 25MB, skipping thumbnail generation");
-                    thumbnailPath = "NULL";
-                } else {
-                    Path tempPdfPath = Files.createTempFile("temp-pdf-", ".pdf");
-                    Files.copy(pdfFile.getInputStream(), tempPdfPath, StandardCopyOption.REPLACE_EXISTING);
-                    
-                    try {
-                        if (useOAuth) {
-                            thumbnailPath = thumbnailService.generateThumbnailToDrive(
-                                tempPdfPath.toString(), 
-                                sanitizedName + "_" + timestamp + "_thumb.jpg",
-                                googleDriveOAuthService
-                            );
-                        } else {
-                            thumbnailPath = thumbnailService.generateThumbnailToDrive(
-                                tempPdfPath.toString(), 
-                                sanitizedName + "_" + timestamp + "_thumb.jpg",
-                                googleDriveService
-                            );
-                        }
-                        
-                        // If thumbnail generation failed, set to NULL
-                        if (thumbnailPath == null) {
-                            thumbnailPath = "NULL";
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Failed to generate thumbnail: " + e.getMessage());
-                        thumbnailPath = "NULL";
-                    } finally {
-                        // Clean up temp file
-                        Files.deleteIfExists(tempPdfPath);
-                    }
-                }
-            } else {
-                // Save to local directory
-                Path filePath = Paths.get(UPLOAD_DIR + filename);
-                Files.copy(pdfFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                bookPath = filePath.toString();
-                
-                // Generate thumbnail locally (will be done after save)
-                thumbnailPath = null;
+        String filename = storageFileName(name);
+
+        // Read the request body exactly once; storage and thumbnail both use this file
+        try (SpooledUpload upload = SpooledUpload.spool(pdfFile)) {
+            // The hash was computed while spooling; content_hash is unique, so the same PDF
+            // uploaded again returns the book that already holds it
+            Optional<Book> existing = bookRepository.findFirstByContentHashOrderByIdAsc(upload.getSha256());
+            DistributionSummary.builder("books.upload.bytes")
+                    .baseUnit("bytes")
+                    .tag("duplicate", String.valueOf(existing.isPresent()))
+                    .register(meterRegistry)
+                    .record(upload.getSize());
+            if (existing.isPresent()) {
+                return existing.get();
             }
+
+            // Local content store or Google Drive, depending on storage.backend. Drive uploads
+            // are stored locally first and moved in the background, so the request does not
+            // wait for the Drive upload
+            StorageBackend storage = storageService.offloadsUploads()
+                    ? storageService.getLocal()
+                    : storageService.getActive();
+            String bookPath = storage.putOwned(upload.getPath(), filename, "application/pdf", upload.getSha256());
             
             // Create book entity
             Book book = new Book();
@@ -150,31 +255,77 @@ public class BookService {
             book.setAuthor(author);
             book.setCategory(category);
             book.setBookPath(bookPath);
+            book.setContentHash(upload.getSha256());
             book.setViews(0L);
+            book.setThumbnailStatus(ThumbnailStatus.PENDING);
             
-            // Save book to get ID
-            Book savedBook = bookRepository.save(book);
+            Book savedBook;
+            try {
+                savedBook = bookRepository.save(book);
+            } catch (DataIntegrityViolationException e) {
+                // The same PDF was uploaded concurrently and saved first: reuse that row
+                Book winner = bookRepository.findFirstByContentHashOrderByIdAsc(upload.getSha256())
+                        .orElseThrow(() -> e);
+                discardStored(bookPath);
+                return winner;
+            }
+            invalidateTotalCount();
             
-            // Generate thumbnail for local storage
-            if (!googleDriveEnabled) {
-                thumbnailPath = thumbnailService.generateThumbnail(
-                    savedBook.getBookPath(), 
-                    savedBook.getId()
-                );
+            // Hand the spooled PDF to the thumbnail job so Drive books need no download
+            if (storage.localPath(bookPath) == null) {
+                thumbnailJobService.stagePdf(upload, savedBook.getId());
             }
+            thumbnailJobService.submit(savedBook.getId());
             
-            if (thumbnailPath != null) {
-                savedBook.setThumbnailPath(thumbnailPath);
-                savedBook = bookRepository.save(savedBook);
+            if (storageService.awaitsOffload(bookPath)) {
+                storageOffloadService.submit(savedBook.getId());
             }
             
+            eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId(), BookChangedEvent.Type.CREATED, savedBook));
             return savedBook;
-        } catch (GeneralSecurityException e) {
-            throw new IOException("Google Drive error: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Delete a stored PDF that no book points at, e.g. the copy written by an upload or
+     * import that lost the race for its content_hash. Local objects shared by content are
+     * still referenced by the winner and are kept.
+     */
+    public void discardStored(String bookPath) {
+        if (bookPath == null || !bookRepository.findByBookPath(bookPath).isEmpty()) {
+            return;
+        }
+        try {
+            storageService.forLocator(bookPath).delete(bookPath);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to delete unused PDF " + bookPath + ": " + e.getMessage());
+        }
+    }
+
+    // Lưu một lô sách nhập hàng loạt (file PDF đã được lưu trữ trước đó)
+    @Timed(value = OPERATIONS, extraTags = {"operation", "import-batch"})
+    public List<Book> saveImported(List<Book> books) {
+        // One transaction per batch instead of one per book
+        List<Book> savedBooks = bookRepository.saveAll(books);
+        invalidateTotalCount();
+        for (Book savedBook : savedBooks) {
+            eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId(), BookChangedEvent.Type.CREATED, savedBook));
+        }
+        return savedBooks;
+    }
+
+    /**
+     * Name a stored PDF after the book title, e.g. "Clean-Code_1700000000000.pdf"
+     */
+    static String storageFileName(String name) {
+        String sanitizedName = name.replaceAll("[^a-zA-Z0-9\\s\\-_]", "")
+                                   .replaceAll("\\s+", "-");
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        return sanitizedName + "_" + timestamp + ".pdf";
+    }
+
     // Cập nhật sách
+    @Timed(value = OPERATIONS, extraTags = {"operation", "update"})
     public Book updateBook(Long id, Book bookDetails) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
@@ -182,72 +333,117 @@ public class BookService {
         book.setName(bookDetails.getName());
         book.setAuthor(bookDetails.getAuthor());
         book.setCategory(bookDetails.getCategory());
+        if (!Objects.equals(book.getBookPath(), bookDetails.getBookPath())) {
+            // A different file: the stored hash no longer describes it
+            book.setContentHash(null);
+        }
         book.setBookPath(bookDetails.getBookPath());
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(id, BookChangedEvent.Type.UPDATED, savedBook));
+        return savedBook;
     }
 
     // Xóa sách
+    @Timed(value = OPERATIONS, extraTags = {"operation", "delete"})
     public void deleteBook(Long id) {
         Optional<Book> book = bookRepository.findById(id);
         if (book.isPresent() && book.get().getThumbnailPath() != null) {
-            // Delete thumbnail file
-            thumbnailService.deleteThumbnail(book.get().getThumbnailPath());
+            // Delete thumbnail file, unless a duplicate upload still uses it
+            String thumbnailPath = book.get().getThumbnailPath();
+            if (bookRepository.countByThumbnailPath(thumbnailPath) <= 1) {
+                thumbnailService.deleteThumbnail(thumbnailPath);
+            }
         }
         bookRepository.deleteById(id);
+        invalidateTotalCount();
+        viewCounterService.discard(id);
+        eventPublisher.publishEvent(new BookChangedEvent(id, BookChangedEvent.Type.DELETED, null));
+    }
+
+    // Sách được xem nhiều nhất (từ bảng xếp hạng trong bộ nhớ)
+    public List<Book> getTrendingBooks(int limit) {
+        return trendingService.getTopBooks(limit);
     }
 
     // Tìm kiếm sách theo tên
+    @Timed(value = OPERATIONS, extraTags = {"operation", "search"})
     public List<Book> searchByName(String name) {
-        return bookRepository.findByNameContainingIgnoreCase(name);
+        return bookCacheService.getQuery("name:" + name, () -> {
+            if (searchIndexService.isReady()) {
+                return searchIndexService.search(name, SearchIndexService.FIELD_NAME, searchLimit);
+            }
+            return bookRepository.findByNameContainingIgnoreCase(name, PageRequest.of(0, searchLimit));
+        });
     }
 
     // Tìm kiếm sách theo tác giả
+    @Timed(value = OPERATIONS, extraTags = {"operation", "search"})
     public List<Book> searchByAuthor(String author) {
-        return bookRepository.findByAuthorContainingIgnoreCase(author);
+        return bookCacheService.getQuery("author:" + author, () -> {
+            if (searchIndexService.isReady()) {
+                return searchIndexService.search(author, SearchIndexService.FIELD_AUTHOR, searchLimit);
+            }
+            return bookRepository.findByAuthorContainingIgnoreCase(author, PageRequest.of(0, searchLimit));
+        });
     }
 
     // Tìm kiếm sách theo thể loại
+    @Timed(value = OPERATIONS, extraTags = {"operation", "search"})
     public List<Book> searchByCategory(String category) {
-        return bookRepository.findByCategoryContainingIgnoreCase(category);
+        return bookCacheService.getQuery("category:" + category, () -> {
+            if (searchIndexService.isReady()) {
+                return searchIndexService.search(category, SearchIndexService.FIELD_CATEGORY, searchLimit);
+            }
+            return bookRepository.findByCategoryContainingIgnoreCase(category, PageRequest.of(0, searchLimit));
+        });
     }
 
     // Tìm kiếm sách theo từ khóa (tên hoặc tác giả)
+    @Timed(value = OPERATIONS, extraTags = {"operation", "search"})
     public List<Book> searchByKeyword(String keyword) {
-        return bookRepository.findByNameContainingIgnoreCaseOrAuthorContainingIgnoreCase(keyword, keyword);
+        return bookCacheService.getQuery("keyword:" + keyword, () -> {
+            if (searchIndexService.isReady()) {
+                return searchIndexService.search(keyword,
+                        SearchIndexService.FIELD_NAME | SearchIndexService.FIELD_AUTHOR, searchLimit);
+            }
+            return bookRepository.findByNameContainingIgnoreCaseOrAuthorContainingIgnoreCase(keyword, keyword, PageRequest.of(0, searchLimit));
+        });
     }
 
     // Tăng lượt xem
-    public Book incrementViews(Long id) {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
-        book.setViews(book.getViews() + 1);
-        return bookRepository.save(book);
+    @Timed(value = OPERATIONS, extraTags = {"operation", "view"})
+    public void incrementViews(Long id) {
+        // Counted in memory and flushed to the database in batches by ViewCounterService;
+        // the book is not loaded, an unknown id is dropped by the flush
+        viewCounterService.increment(id);
+        trendingService.recordView(id);
     }
 
     // Regenerate thumbnail for existing book
+    @Timed(value = OPERATIONS, extraTags = {"operation", "regenerate-thumbnail"})
     public Book regenerateThumbnail(Long id) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
-        
-        if (book.getBookPath() != null && !book.getBookPath().isEmpty()) {
-            // Delete old thumbnail if exists
-            if (book.getThumbnailPath() != null) {
-                thumbnailService.deleteThumbnail(book.getThumbnailPath());
-            }
-            
-            // Generate new thumbnail
-            String thumbnailPath = thumbnailService.generateThumbnail(
-                book.getBookPath(), 
-                book.getId()
-            );
-            
-            if (thumbnailPath != null) {
-                book.setThumbnailPath(thumbnailPath);
-                return bookRepository.save(book);
-            }
-        }
-        
+        requeueThumbnail(book);
         return book;
     }
+
+    /**
+     * Put an already loaded book back on the thumbnail queue (batch regeneration)
+     * @return Whether the book has a PDF to render and was queued
+     */
+    public boolean requeueThumbnail(Book book) {
+        if (book.getBookPath() == null || book.getBookPath().isEmpty()) {
+            return false;
+        }
+        Long id = book.getId();
+        // The old thumbnail keeps being served until the job replaces it
+        bookRepository.updateThumbnailStatus(id, ThumbnailStatus.PENDING, 0);
+        book.setThumbnailStatus(ThumbnailStatus.PENDING);
+        book.setThumbnailAttempts(0);
+        eventPublisher.publishEvent(new BookChangedEvent(id, BookChangedEvent.Type.THUMBNAIL, book));
+        thumbnailJobService.submit(id);
+        return true;
+    }
 }
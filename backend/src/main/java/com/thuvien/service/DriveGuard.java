@@ -0,0 +1,300 @@
+package com.thuvien.service;
+
+import com.google.api.client.http.HttpResponseException;
+import com.thuvien.storage.DriveUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Isolation layer for all Google Drive traffic: per-operation deadlines, bulkheads and a
+ * circuit breaker, so a slow or failing Drive degrades Drive features only.
+ *
+ * Each call runs on a separate thread and the caller stops waiting at the operation's
+ * deadline. The thread keeps its bulkhead permit until the call really ends, so hung calls
+ * fill the bulkhead and further calls are rejected at once instead of piling up. Uploads
+ * and reads have separate bulkheads, so a bulk import cannot starve readers.
+ *
+ * After {@code failure-threshold} consecutive failures (timeouts, I/O errors, 5xx/429) the
+ * circuit opens and calls fail fast for {@code open-ms}. Then one probe call is let through
+ * (half-open): success closes the circuit, failure opens it again.
+ */
+@Component
+public class DriveGuard {
+
+    public enum Operation {
+        UPLOAD, DOWNLOAD, OPEN_RANGE, DELETE, THUMBNAIL
+    }
+
+    private enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * A Drive call to run under the guard
+     */
+    @FunctionalInterface
+    public interface DriveCall<T> {
+        T call() throws IOException, GeneralSecurityException;
+    }
+
+    @Autowired
+    private ThreadSupport threadSupport;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${google.drive.guard.timeout.upload-ms:600000}")
+    private long uploadTimeoutMs;
+
+    @Value("${google.drive.guard.timeout.download-ms:120000}")
+    private long downloadTimeoutMs;
+
+    @Value("${google.drive.guard.timeout.range-ms:15000}")
+    private long rangeTimeoutMs;
+
+    @Value("${google.drive.guard.timeout.delete-ms:15000}")
+    private long deleteTimeoutMs;
+
+    @Value("${google.drive.guard.timeout.thumbnail-ms:10000}")
+    private long thumbnailTimeoutMs;
+
+    @Value("${google.drive.guard.bulkhead.uploads:4}")
+    private int uploadPermits;
+
+    @Value("${google.drive.guard.bulkhead.reads:16}")
+    private int readPermits;
+
+    // Uploads (imports, background jobs) may wait for a permit; interactive reads should not
+    @Value("${google.drive.guard.bulkhead.upload-wait-ms:30000}")
+    private long uploadWaitMs;
+
+    @Value("${google.drive.guard.bulkhead.read-wait-ms:200}")
+    private long readWaitMs;
+
+    @Value("${google.drive.guard.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${google.drive.guard.open-ms:30000}")
+    private long openMs;
+
+    private Semaphore uploads;
+    private Semaphore reads;
+    private ExecutorService calls;
+
+    // Circuit state, guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    @PostConstruct
+    public void init() {
+        uploads = new Semaphore(uploadPermits);
+        reads = new Semaphore(readPermits);
+        // Unbounded on purpose: the bulkheads bound the number of running calls
+        calls = Executors.newCachedThreadPool(threadSupport.ioThreadFactory("drive-call-"));
+
+        Gauge.builder("drive.circuit.state", this, guard -> guard.getState().ordinal())
+                .description("Drive circuit breaker: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        Gauge.builder("drive.bulkhead.available", uploads, Semaphore::availablePermits)
+                .tag("bulkhead", "uploads")
+                .register(meterRegistry);
+        Gauge.builder("drive.bulkhead.available", reads, Semaphore::availablePermits)
+                .tag("bulkhead", "reads")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        calls.shutdownNow();
+    }
+
+    /**
+     * Run a Drive call with the operation's deadline, bulkhead and the circuit breaker
+     * @throws DriveUnavailableException if the call was rejected or ran past its deadline
+     */
+    public <T> T call(Operation operation, DriveCall<T> call) throws IOException, GeneralSecurityException {
+        boolean probe = acquirePermission(operation);
+
+        Semaphore bulkhead = operation == Operation.UPLOAD ? uploads : reads;
+        long waitMs = operation == Operation.UPLOAD ? uploadWaitMs : readWaitMs;
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            releaseProbe(probe);
+            reject(operation, "bulkhead-full");
+            throw new DriveUnavailableException("Too many concurrent Drive calls", 1);
+        }
+
+        Future<T> future;
+        try {
+            future = calls.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            releaseProbe(probe);
+            throw new DriveUnavailableException("Drive client is shutting down", 1);
+        }
+
+        long timeoutMs = timeoutOf(operation);
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            meterRegistry.counter("drive.guard.timeouts", "operation", tagOf(operation)).increment();
+            onFailure();
+            throw new DriveUnavailableException("Drive " + tagOf(operation) + " timed out after " + timeoutMs + " ms", 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            releaseProbe(probe);
+            Thread.currentThread().interrupt();
+            throw new DriveUnavailableException("Interrupted while waiting for Drive", 1);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isDriveFailure(cause)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof GeneralSecurityException security) {
+                throw security;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * "closed", "half-open" or "open"
+     */
+    public String getCircuitState() {
+        return getState().name().toLowerCase().replace('_', '-');
+    }
+
+    private synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Let the call through or fail fast
+     * @return Whether this call is the half-open probe
+     */
+    private boolean acquirePermission(Operation operation) throws DriveUnavailableException {
+        synchronized (this) {
+            if (state == State.OPEN) {
+                long remainingMs = openedAt + openMs - System.currentTimeMillis();
+                if (remainingMs > 0) {
+                    reject(operation, "circuit-open");
+                    throw new DriveUnavailableException("Google Drive is unavailable (circuit open)",
+                            Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs)));
+                }
+                state = State.HALF_OPEN;
+                System.out.println("Drive circuit half-open, probing");
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    reject(operation, "circuit-open");
+                    throw new DriveUnavailableException("Google Drive is unavailable (probe in flight)", 1);
+                }
+                probeInFlight = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (probe) {
+            probeInFlight = false;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            System.out.println("Drive circuit closed");
+        }
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            System.err.println("Drive circuit opened after " + consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    private void reject(Operation operation, String reason) {
+        meterRegistry.counter("drive.guard.rejected", "operation", tagOf(operation), "reason", reason).increment();
+    }
+
+    /**
+     * Whether an error says Drive is unhealthy; 404s, permission and credential errors do not
+     */
+    private boolean isDriveFailure(Throwable error) {
+        if (error instanceof HttpResponseException response) {
+            int status = response.getStatusCode();
+            return status >= 500 || status == 429;
+        }
+        if (error instanceof FileNotFoundException || error instanceof GeneralSecurityException) {
+            return false;
+        }
+        return error instanceof IOException || error instanceof RuntimeException;
+    }
+
+    private long timeoutOf(Operation operation) {
+        return switch (operation) {
+            case UPLOAD -> uploadTimeoutMs;
+            case DOWNLOAD -> downloadTimeoutMs;
+            case OPEN_RANGE -> rangeTimeoutMs;
+            case DELETE -> deleteTimeoutMs;
+            case THUMBNAIL -> thumbnailTimeoutMs;
+        };
+    }
+
+    private static String tagOf(Operation operation) {
+        return operation.name().toLowerCase().replace('_', '-');
+    }
+}
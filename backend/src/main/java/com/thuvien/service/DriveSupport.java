@@ -0,0 +1,326 @@
+package com.thuvien.service;
+
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.FileContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpBackOffIOExceptionHandler;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.BackOff;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.Permission;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP transport, client construction and upload logic shared by {@link GoogleDriveService}
+ * and {@link GoogleDriveOAuthService}.
+ *
+ * One pooled Apache transport is reused by both clients, so uploads and downloads keep their
+ * TLS connections alive. Every request gets connect/read timeouts and exponential backoff on
+ * 5xx, 429 and I/O errors, except POSTs that create a file: a create whose response was lost
+ * may already have made the file, so {@link #upload} looks it up by name before trying again.
+ * Large files are uploaded with the resumable protocol in chunks; a chunk that fails is
+ * retried from the offset the server confirms.
+ */
+@Component
+public class DriveSupport {
+
+    static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    static final String APPLICATION_NAME = "ThuVien App";
+
+    // "client" tag of the transfer metrics
+    static final String CLIENT_SERVICE_ACCOUNT = "service-account";
+    static final String CLIENT_OAUTH = "oauth";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${google.drive.http.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${google.drive.http.connect-timeout-ms:10000}")
+    private int connectTimeoutMs;
+
+    @Value("${google.drive.http.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
+    @Value("${google.drive.http.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${google.drive.upload.chunk-size-mb:8}")
+    private int chunkSizeMb;
+
+    // Alternative API root, e.g. a local mock Drive server in load tests; empty = Google
+    @Value("${google.drive.root-url:}")
+    private String rootUrl;
+
+    // Files uploaded into a folder that is already shared publicly inherit its permission
+    @Value("${google.drive.inherit-folder-permissions:false}")
+    private boolean inheritFolderPermissions;
+
+    private CloseableHttpClient httpClient;
+    private HttpTransport transport;
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        pool.setValidateAfterInactivity(10_000);
+
+        httpClient = ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setConnectionManager(pool)
+                .evictIdleConnections(60, TimeUnit.SECONDS)
+                .build();
+        transport = new ApacheHttpTransport(httpClient);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * The shared transport (also used for OAuth token requests)
+     */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Build a Drive client on the shared transport
+     * @param credentials Sets the Authorization header (and refreshes tokens on 401)
+     */
+    public Drive newDrive(HttpRequestInitializer credentials) {
+        HttpRequestInitializer initializer = request -> {
+            credentials.initialize(request);
+            request.setConnectTimeout(connectTimeoutMs);
+            request.setReadTimeout(readTimeoutMs);
+            request.setNumberOfRetries(maxRetries);
+
+            // Keep the credential's 401 handling, then back off on transient server errors
+            HttpUnsuccessfulResponseHandler auth = request.getUnsuccessfulResponseHandler();
+            HttpBackOffUnsuccessfulResponseHandler backOff = new HttpBackOffUnsuccessfulResponseHandler(newBackOff())
+                    .setBackOffRequired(response -> response.getStatusCode() / 100 == 5
+                            || response.getStatusCode() == 429);
+            request.setUnsuccessfulResponseHandler((req, response, supportsRetry) ->
+                    (auth != null && auth.handleResponse(req, response, supportsRetry))
+                            || (replayable(req) && backOff.handleResponse(req, response, supportsRetry)));
+            HttpBackOffIOExceptionHandler ioBackOff = new HttpBackOffIOExceptionHandler(newBackOff());
+            request.setIOExceptionHandler((req, supportsRetry) ->
+                    replayable(req) && ioBackOff.handleIOException(req, supportsRetry));
+        };
+
+        Drive.Builder builder = new Drive.Builder(transport, JSON_FACTORY, initializer)
+                .setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null && !rootUrl.isEmpty()) {
+            builder.setRootUrl(rootUrl.endsWith("/") ? rootUrl : rootUrl + "/");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Upload a file (resumable and chunked when larger than one chunk) and make it publicly readable
+     * @param sharedDrives Set supportsAllDrives (service account on a Shared Drive)
+     * @return Public view link to the file
+     */
+    public String upload(Drive drive, java.io.File file, String fileName, String folderId, boolean sharedDrives)
+            throws IOException {
+        // Only the service account works on Shared Drives
+        String client = sharedDrives ? CLIENT_SERVICE_ACCOUNT : CLIENT_OAUTH;
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String url = doUpload(drive, file, fileName, folderId, sharedDrives);
+            success = true;
+            return url;
+        } finally {
+            recordTransfer("upload", client, start, success ? file.length() : 0, success);
+        }
+    }
+
+    /**
+     * Record one upload/download for the drive.transfer timer and byte summary
+     */
+    public void recordTransfer(String direction, String client, long startNanos, long bytes, boolean success) {
+        Timer.builder("drive.transfer")
+                .tag("direction", direction)
+                .tag("client", client)
+                .tag("outcome", success ? "success" : "error")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            DistributionSummary.builder("drive.transfer.bytes")
+                    .baseUnit("bytes")
+                    .tag("direction", direction)
+                    .tag("client", client)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+    }
+
+    private String doUpload(Drive drive, java.io.File file, String fileName, String folderId, boolean sharedDrives)
+            throws IOException {
+        File uploadedFile = create(drive, file, fileName, folderId, sharedDrives);
+
+        if (!inheritFolderPermissions) {
+            // Media uploads cannot join a batch, so the permission is one extra request
+            Drive.Permissions.Create permission = drive.permissions()
+                    .create(uploadedFile.getId(), new Permission().setType("anyone").setRole("reader"))
+                    .setFields("id");
+            if (sharedDrives) {
+                permission.setSupportsAllDrives(true);
+            }
+            permission.execute();
+        }
+
+        return "https://drive.google.com/uc?export=view&id=" + uploadedFile.getId();
+    }
+
+    /**
+     * Create the file, retrying transient failures. The create is not idempotent, so before
+     * each retry the folder is searched for a file of that name (names carry a timestamp)
+     * in case the failed attempt went through and only its response was lost.
+     */
+    private File create(Drive drive, java.io.File file, String fileName, String folderId, boolean sharedDrives)
+            throws IOException {
+        BackOff backOff = newBackOff();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return newCreate(drive, file, fileName, folderId, sharedDrives).execute();
+            } catch (IOException e) {
+                long waitMs = backOff.nextBackOffMillis();
+                if (attempt >= maxRetries || !isTransient(e) || waitMs == BackOff.STOP) {
+                    throw e;
+                }
+                sleep(waitMs);
+                File existing = findByName(drive, fileName, folderId, sharedDrives);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+        }
+    }
+
+    private Drive.Files.Create newCreate(Drive drive, java.io.File file, String fileName, String folderId,
+                                         boolean sharedDrives) throws IOException {
+        File fileMetadata = new File();
+        fileMetadata.setName(fileName);
+        if (folderId != null && !folderId.isEmpty()) {
+            fileMetadata.setParents(Collections.singletonList(folderId));
+        }
+
+        Drive.Files.Create create = drive.files()
+                .create(fileMetadata, new FileContent(mimeType(file, fileName), file))
+                .setFields("id");
+        if (sharedDrives) {
+            create.setSupportsAllDrives(true);
+        }
+
+        // Chunk size must be a multiple of 256 KB; small files (thumbnails) go in one request
+        int chunkSize = Math.max(1, chunkSizeMb * 4) * MediaHttpUploader.MINIMUM_CHUNK_SIZE;
+        MediaHttpUploader uploader = create.getMediaHttpUploader();
+        uploader.setChunkSize(chunkSize);
+        uploader.setDirectUploadEnabled(file.length() <= chunkSize);
+        return create;
+    }
+
+    private File findByName(Drive drive, String fileName, String folderId, boolean sharedDrives) throws IOException {
+        String query = "name = '" + escapeQuery(fileName) + "' and trashed = false";
+        if (folderId != null && !folderId.isEmpty()) {
+            query += " and '" + escapeQuery(folderId) + "' in parents";
+        }
+        Drive.Files.List list = drive.files().list()
+                .setQ(query)
+                .setFields("files(id)")
+                .setPageSize(1);
+        if (sharedDrives) {
+            list.setSupportsAllDrives(true).setIncludeItemsFromAllDrives(true);
+        }
+        List<File> files = list.execute().getFiles();
+        return files == null || files.isEmpty() ? null : files.get(0);
+    }
+
+    /**
+     * Whether a request may be sent again after a lost or failed response without creating
+     * a second object. Opening a resumable session creates nothing, and granting the same
+     * permission twice leaves one permission; other POSTs (files.create) are not replayed.
+     */
+    private static boolean replayable(HttpRequest request) {
+        if (!HttpMethods.POST.equals(request.getRequestMethod())) {
+            return true;
+        }
+        GenericUrl url = request.getUrl();
+        return "resumable".equals(url.getFirst("uploadType")) || url.getRawPath().endsWith("/permissions");
+    }
+
+    private static boolean isTransient(IOException e) {
+        if (e instanceof HttpResponseException response) {
+            return response.getStatusCode() / 100 == 5 || response.getStatusCode() == 429;
+        }
+        return true;
+    }
+
+    private static String escapeQuery(String value) {
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrying a Drive upload");
+        }
+    }
+
+    private ExponentialBackOff newBackOff() {
+        return new ExponentialBackOff.Builder()
+                .setInitialIntervalMillis(500)
+                .setMaxIntervalMillis(10_000)
+                .setMaxElapsedTimeMillis(60_000)
+                .build();
+    }
+
+    private String mimeType(java.io.File file, String fileName) throws IOException {
+        String mimeType = Files.probeContentType(file.toPath());
+        if (mimeType != null) {
+            return mimeType;
+        }
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".pdf")) {
+            return "application/pdf";
+        } else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (lower.endsWith(".png")) {
+            return "image/png";
+        }
+        return "application/octet-stream";
+    }
+}
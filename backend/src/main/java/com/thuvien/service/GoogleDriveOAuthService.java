@@ -5,39 +5,41 @@ import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInsta
 import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.FileContent;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.DriveScopes;
-import com.google.api.services.drive.model.File;
-import com.google.api.services.drive.model.Permission;
+import com.thuvien.storage.DriveClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 
 @Service
-public class GoogleDriveOAuthService {
+public class GoogleDriveOAuthService implements DriveClient {
 
-    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
-    private static final String APPLICATION_NAME = "ThuVien App";
+    private static final JsonFactory JSON_FACTORY = DriveSupport.JSON_FACTORY;
     private static final List<String> SCOPES = Collections.singletonList(DriveScopes.DRIVE_FILE);
     private static final String TOKENS_DIRECTORY_PATH = "tokens";
+    private static final String USER_ID = "user";
+
+    // Tokens closer than this to expiry are refreshed by checkToken
+    private static final long REFRESH_MARGIN_SECONDS = 300;
     
     @Value("${google.drive.oauth.credentials.path:src/main/resources/oauth_credentials.json}")
     private String oauthCredentialsPath;
@@ -45,12 +47,43 @@ public class GoogleDriveOAuthService {
     @Value("${google.drive.folder.id:}")
     private String folderId;
 
-    private Drive driveService;
+    @Autowired
+    private DriveSupport driveSupport;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    // Built once and shared by all threads
+    private volatile GoogleAuthorizationCodeFlow flow;
+    private volatile Credential credential;
+    private volatile Drive driveService;
 
     /**
      * Creates an authorized Credential object using OAuth 2.0
      */
     private Credential getCredentials(HttpTransport httpTransport) throws IOException {
+        LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
+        return new AuthorizationCodeInstalledApp(getFlow(httpTransport), receiver).authorize(USER_ID);
+    }
+
+    /**
+     * Authorization flow backed by the stored tokens, built once
+     */
+    private GoogleAuthorizationCodeFlow getFlow(HttpTransport httpTransport) throws IOException {
+        GoogleAuthorizationCodeFlow built = flow;
+        if (built == null) {
+            synchronized (this) {
+                built = flow;
+                if (built == null) {
+                    built = buildFlow(httpTransport);
+                    flow = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    private GoogleAuthorizationCodeFlow buildFlow(HttpTransport httpTransport) throws IOException {
         // Load client secrets from environment variable or file
         GoogleClientSecrets clientSecrets;
         
@@ -89,117 +122,118 @@ public class GoogleDriveOAuthService {
             }
         }
 
-        // Build flow and trigger user authorization request
-        GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
+        // Build flow; refreshed tokens are written back to the tokens directory
+        return new GoogleAuthorizationCodeFlow.Builder(
                 httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
                 .setDataStoreFactory(new FileDataStoreFactory(tokensDir))
                 .setAccessType("offline")
                 .build();
-        
-        LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
-        return new AuthorizationCodeInstalledApp(flow, receiver).authorize("user");
     }
 
     /**
      * Initialize Google Drive service with OAuth credentials
      */
     private Drive getDriveService() throws IOException, GeneralSecurityException {
-        if (driveService == null) {
-            HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            Credential credential = getCredentials(httpTransport);
-            
-            driveService = new Drive.Builder(httpTransport, JSON_FACTORY, credential)
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        Drive service = driveService;
+        if (service == null) {
+            synchronized (this) {
+                service = driveService;
+                if (service == null) {
+                    credential = getCredentials(driveSupport.getTransport());
+                    service = driveSupport.newDrive(credential);
+                    driveService = service;
+                }
+            }
         }
-        return driveService;
+        return service;
     }
 
-    /**
-     * Upload file to Google Drive (My Drive)
-     */
-    public String uploadFile(MultipartFile multipartFile, String fileName) throws IOException, GeneralSecurityException {
-        // Save multipart file to temp location first
-        Path tempFile = Files.createTempFile("upload-", fileName);
-        try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-            fos.write(multipartFile.getBytes());
-        }
-
-        return uploadFile(tempFile.toFile(), fileName);
-    }
 
     /**
      * Upload file to Google Drive
      */
+    @Override
     public String uploadFile(java.io.File file, String fileName) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
+        // Resumable chunked upload, then make the file publicly readable
+        return driveGuard.call(DriveGuard.Operation.UPLOAD,
+                () -> driveSupport.upload(getDriveService(), file, fileName, folderId, false));
+    }
 
-        // File metadata
-        File fileMetadata = new File();
-        fileMetadata.setName(fileName);
-        
-        // Set parent folder if specified
-        if (folderId != null && !folderId.isEmpty()) {
-            fileMetadata.setParents(Collections.singletonList(folderId));
-        }
+    /**
+     * Delete file from Google Drive
+     */
+    @Override
+    public void deleteFile(String fileId) throws IOException, GeneralSecurityException {
+        driveGuard.call(DriveGuard.Operation.DELETE, () -> getDriveService().files().delete(fileId).execute());
+    }
 
-        // Determine MIME type
-        String mimeType = Files.probeContentType(file.toPath());
-        if (mimeType == null) {
-            if (fileName.toLowerCase().endsWith(".pdf")) {
-                mimeType = "application/pdf";
-            } else if (fileName.toLowerCase().endsWith(".jpg") || fileName.toLowerCase().endsWith(".jpeg")) {
-                mimeType = "image/jpeg";
-            } else if (fileName.toLowerCase().endsWith(".png")) {
-                mimeType = "image/png";
-            } else {
-                mimeType = "application/octet-stream";
+    /**
+     * Download file content from Google Drive to a local path
+     */
+    @Override
+    public void downloadFile(String fileId, Path target) throws IOException, GeneralSecurityException {
+        driveGuard.call(DriveGuard.Operation.DOWNLOAD, () -> {
+            Drive service = getDriveService();
+            long start = System.nanoTime();
+            boolean success = false;
+            try (OutputStream outputStream = Files.newOutputStream(target)) {
+                service.files().get(fileId)
+                        .executeMediaAndDownloadTo(outputStream);
+                success = true;
+            } finally {
+                driveSupport.recordTransfer("download", DriveSupport.CLIENT_OAUTH, start,
+                        success ? Files.size(target) : 0, success);
             }
-        }
-
-        FileContent mediaContent = new FileContent(mimeType, file);
-
-        // Upload file
-        File uploadedFile = service.files().create(fileMetadata, mediaContent)
-                .setFields("id, webViewLink, webContentLink")
-                .execute();
-
-        // Make file publicly readable
-        makePublic(uploadedFile.getId());
-
-        // Clean up temp file if it was created
-        if (file.getPath().contains("upload-")) {
-            file.delete();
-        }
-
-        // Return direct link for viewing
-        return "https://drive.google.com/uc?export=view&id=" + uploadedFile.getId();
+            return null;
+        });
     }
 
     /**
-     * Make a file publicly readable
+     * Stream part of a file using an HTTP Range request
      */
-    private void makePublic(String fileId) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
-        
-        Permission permission = new Permission()
-                .setType("anyone")
-                .setRole("reader");
-        
-        service.permissions().create(fileId, permission).execute();
+    @Override
+    public InputStream openRange(String fileId, long offset, long length) throws IOException, GeneralSecurityException {
+        // Only opening the stream is guarded; reads are bounded by the socket read timeout
+        return driveGuard.call(DriveGuard.Operation.OPEN_RANGE, () -> {
+            Drive.Files.Get request = getDriveService().files().get(fileId);
+            String end = length < 0 ? "" : String.valueOf(offset + length - 1);
+            request.getRequestHeaders().setRange("bytes=" + offset + "-" + end);
+            return request.executeMediaAsInputStream();
+        });
     }
 
     /**
-     * Delete file from Google Drive
+     * Check the stored OAuth token, refreshing the access token if it is close to expiry.
+     * Unlike the first Drive call, this never opens the browser authorization.
      */
-    public void deleteFile(String fileId) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
-        service.files().delete(fileId).execute();
+    @Override
+    public Instant checkToken() throws IOException {
+        Credential current = credential;
+        if (current == null) {
+            // Drive not used yet in this process: read the stored token directly
+            current = getFlow(driveSupport.getTransport()).loadCredential(USER_ID);
+            if (current == null) {
+                throw new IOException("No stored OAuth token, authorization is required");
+            }
+        }
+
+        Long expiresIn = current.getExpiresInSeconds();
+        if (expiresIn == null || expiresIn < REFRESH_MARGIN_SECONDS) {
+            if (current.getRefreshToken() == null) {
+                throw new IOException("OAuth access token expired and there is no refresh token");
+            }
+            if (!current.refreshToken()) {
+                throw new IOException("OAuth access token could not be refreshed");
+            }
+        }
+        Long expiresAt = current.getExpirationTimeMilliseconds();
+        return expiresAt != null ? Instant.ofEpochMilli(expiresAt) : null;
     }
 
     /**
      * Extract file ID from Google Drive URL
      */
+    @Override
     public String extractFileId(String driveUrl) {
         if (driveUrl == null || driveUrl.isEmpty()) {
             return null;
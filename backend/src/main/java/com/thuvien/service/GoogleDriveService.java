@@ -1,159 +1,161 @@
 package com.thuvien.service;
 
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.FileContent;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
-import com.google.api.services.drive.model.File;
-import com.google.api.services.drive.model.Permission;
 import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.thuvien.storage.DriveClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.time.Instant;
 import java.util.Collections;
 
 @Service
-public class GoogleDriveService {
+public class GoogleDriveService implements DriveClient {
 
-    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
-    private static final String APPLICATION_NAME = "ThuVien App";
-    
     @Value("${google.drive.credentials.path:src/main/resources/credentials.json}")
     private String credentialsPath;
     
     @Value("${google.drive.folder.id:}")
     private String folderId;
 
-    private Drive driveService;
+    @Autowired
+    private DriveSupport driveSupport;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    // Built once and shared by all threads
+    private volatile GoogleCredentials credentials;
+    private volatile Drive driveService;
 
     /**
-     * Initialize Google Drive service with credentials
+     * Load the service account key
      */
-    private Drive getDriveService() throws IOException, GeneralSecurityException {
-        if (driveService == null) {
-            HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            
-            GoogleCredentials credentials = GoogleCredentials
-                .fromStream(new FileInputStream(credentialsPath))
-                .createScoped(Collections.singletonList("https://www.googleapis.com/auth/drive.file"));
-            
-            driveService = new Drive.Builder(
-                httpTransport,
-                JSON_FACTORY,
-                new HttpCredentialsAdapter(credentials))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+    private GoogleCredentials getCredentials() throws IOException {
+        GoogleCredentials loaded = credentials;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = credentials;
+                if (loaded == null) {
+                    try (FileInputStream credentialsStream = new FileInputStream(credentialsPath)) {
+                        loaded = GoogleCredentials
+                            .fromStream(credentialsStream)
+                            .createScoped(Collections.singletonList("https://www.googleapis.com/auth/drive.file"));
+                    }
+                    credentials = loaded;
+                }
+            }
         }
-        return driveService;
+        return loaded;
     }
 
     /**
-     * Upload file to Google Drive
-     * @param multipartFile File to upload
-     * @param fileName Desired file name
-     * @return Public view link to the file
+     * Initialize Google Drive service with credentials
      */
-    public String uploadFile(MultipartFile multipartFile, String fileName) throws IOException, GeneralSecurityException {
-        // Save multipart file to temp location first
-        Path tempFile = Files.createTempFile("upload-", fileName);
-        try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-            fos.write(multipartFile.getBytes());
+    private Drive getDriveService() throws IOException, GeneralSecurityException {
+        Drive service = driveService;
+        if (service == null) {
+            synchronized (this) {
+                service = driveService;
+                if (service == null) {
+                    service = driveSupport.newDrive(new HttpCredentialsAdapter(getCredentials()));
+                    driveService = service;
+                }
+            }
         }
-
-        return uploadFile(tempFile.toFile(), fileName);
+        return service;
     }
 
+
     /**
      * Upload file to Google Drive
      * @param file File to upload
      * @param fileName Desired file name
      * @return Public view link to the file
      */
+    @Override
     public String uploadFile(java.io.File file, String fileName) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
-
-        // File metadata
-        File fileMetadata = new File();
-        fileMetadata.setName(fileName);
-        
-        // Set parent folder if specified
-        if (folderId != null && !folderId.isEmpty()) {
-            fileMetadata.setParents(Collections.singletonList(folderId));
-        }
-
-        // Determine MIME type
-        String mimeType = Files.probeContentType(file.toPath());
-        if (mimeType == null) {
-            if (fileName.toLowerCase().endsWith(".pdf")) {
-                mimeType = "application/pdf";
-            } else if (fileName.toLowerCase().endsWith(".jpg") || fileName.toLowerCase().endsWith(".jpeg")) {
-                mimeType = "image/jpeg";
-            } else if (fileName.toLowerCase().endsWith(".png")) {
-                mimeType = "image/png";
-            } else {
-                mimeType = "application/octet-stream";
-            }
-        }
-
-        FileContent mediaContent = new FileContent(mimeType, file);
+        // Resumable chunked upload with supportsAllDrives for Shared Drive support
+        return driveGuard.call(DriveGuard.Operation.UPLOAD,
+                () -> driveSupport.upload(getDriveService(), file, fileName, folderId, true));
+    }
 
-        // Upload file with supportsAllDrives for Shared Drive support
-        File uploadedFile = service.files().create(fileMetadata, mediaContent)
+    /**
+     * Delete file from Google Drive
+     */
+    @Override
+    public void deleteFile(String fileId) throws IOException, GeneralSecurityException {
+        driveGuard.call(DriveGuard.Operation.DELETE, () -> getDriveService().files().delete(fileId)
                 .setSupportsAllDrives(true)
-                .setFields("id, webViewLink, webContentLink")
-                .execute();
-
-        // Make file publicly readable
-        makePublic(uploadedFile.getId());
-
-        // Clean up temp file if it was created
-        if (file.getPath().contains("upload-")) {
-            file.delete();
-        }
+                .execute());
+    }
 
-        // Return direct link for viewing
-        return "https://drive.google.com/uc?export=view&id=" + uploadedFile.getId();
+    /**
+     * Download file content from Google Drive to a local path
+     */
+    @Override
+    public void downloadFile(String fileId, Path target) throws IOException, GeneralSecurityException {
+        driveGuard.call(DriveGuard.Operation.DOWNLOAD, () -> {
+            Drive service = getDriveService();
+            long start = System.nanoTime();
+            boolean success = false;
+            try (OutputStream outputStream = Files.newOutputStream(target)) {
+                service.files().get(fileId)
+                        .setSupportsAllDrives(true)
+                        .executeMediaAndDownloadTo(outputStream);
+                success = true;
+            } finally {
+                driveSupport.recordTransfer("download", DriveSupport.CLIENT_SERVICE_ACCOUNT, start,
+                        success ? Files.size(target) : 0, success);
+            }
+            return null;
+        });
     }
 
     /**
-     * Make a file publicly readable
+     * Stream part of a file using an HTTP Range request
      */
-    private void makePublic(String fileId) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
-        
-        Permission permission = new Permission()
-                .setType("anyone")
-                .setRole("reader");
-        
-        service.permissions().create(fileId, permission)
-                .setSupportsAllDrives(true)
-                .execute();
+    @Override
+    public InputStream openRange(String fileId, long offset, long length) throws IOException, GeneralSecurityException {
+        // Only opening the stream is guarded; reads are bounded by the socket read timeout
+        return driveGuard.call(DriveGuard.Operation.OPEN_RANGE, () -> {
+            Drive.Files.Get request = getDriveService().files().get(fileId)
+                    .setSupportsAllDrives(true);
+            String end = length < 0 ? "" : String.valueOf(offset + length - 1);
+            request.getRequestHeaders().setRange("bytes=" + offset + "-" + end);
+            return request.executeMediaAsInputStream();
+        });
     }
 
     /**
-     * Delete file from Google Drive
+     * Fetch an access token for the service account if the current one is missing or expiring
      */
-    public void deleteFile(String fileId) throws IOException, GeneralSecurityException {
-        Drive service = getDriveService();
-        service.files().delete(fileId)
-                .setSupportsAllDrives(true)
-                .execute();
+    @Override
+    public Instant checkToken() throws IOException {
+        GoogleCredentials current = getCredentials();
+        current.refreshIfExpired();
+        AccessToken token = current.getAccessToken();
+        if (token == null) {
+            throw new IOException("Service account did not return an access token");
+        }
+        return token.getExpirationTime() != null ? token.getExpirationTime().toInstant() : null;
     }
 
     /**
      * Extract file ID from Google Drive URL
      */
+    @Override
     public String extractFileId(String driveUrl) {
         if (driveUrl == null || driveUrl.isEmpty()) {
             return null;
@@ -0,0 +1,297 @@
+package com.thuvien.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+
+/**
+ * Image resizing on {@code int[]} RGB pixel data, used for thumbnails and page renditions
+ * instead of Java2D scaling.
+ *
+ * Large reductions first halve the image with a 2x2 box filter (exact and cheap, done in
+ * place) until it is less than twice the target size, then one separable pass with the
+ * configured filter produces the exact size. The filter is widened by the scale factor,
+ * so every source pixel contributes and there is no aliasing; Lanczos keeps text sharper,
+ * bilinear is a little faster.
+ *
+ * Working buffers are allocated per call and dropped with it: halving works in place and
+ * images rendered by PDFBox are read without a copy, so a call needs about one and a
+ * quarter source-sized buffers besides the result. Alpha is dropped: the result is always
+ * {@code TYPE_INT_RGB}.
+ */
+@Component
+public class ImageResampler {
+
+    public enum Filter {
+        BILINEAR(1), LANCZOS3(3);
+
+        final double radius;
+
+        Filter(double radius) {
+            this.radius = radius;
+        }
+
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x >= radius) {
+                return 0;
+            }
+            if (this == BILINEAR) {
+                return 1 - x;
+            }
+            return sinc(x) * sinc(x / radius);
+        }
+
+        private static double sinc(double x) {
+            if (x == 0) {
+                return 1;
+            }
+            x *= Math.PI;
+            return Math.sin(x) / x;
+        }
+    }
+
+    // Filter weights are fixed-point with this many fraction bits
+    private static final int WEIGHT_BITS = 14;
+    private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+    private static final int WEIGHT_ROUND = 1 << (WEIGHT_BITS - 1);
+
+    @Value("${thumbnail.resample.filter:LANCZOS3}")
+    private Filter filter = Filter.LANCZOS3;
+
+    public ImageResampler() {
+    }
+
+    public ImageResampler(Filter filter) {
+        this.filter = filter;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Resize to the given width, keeping the aspect ratio
+     */
+    public BufferedImage resizeToWidth(BufferedImage image, int targetWidth) {
+        int targetHeight = Math.max(1, Math.round((float) image.getHeight() * targetWidth / image.getWidth()));
+        return resize(image, targetWidth, targetHeight);
+    }
+
+    /**
+     * Resize to exactly the given size
+     * @return A new {@code TYPE_INT_RGB} image; the source is left untouched
+     */
+    public BufferedImage resize(BufferedImage image, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("Invalid target size " + targetWidth + "x" + targetHeight);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int[] pixels = directPixels(image);
+        if (pixels == null) {
+            pixels = new int[width * height];
+            readPixels(image, pixels);
+        }
+
+        // Halve while the image stays at least twice the target; the first step copies out of
+        // the source, later steps work in place
+        if (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            int[] halved = new int[(width / 2) * (height / 2)];
+            halve(pixels, width, height, halved);
+            width /= 2;
+            height /= 2;
+            while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+                halve(halved, width, height, halved);
+                width /= 2;
+                height /= 2;
+            }
+            pixels = halved;
+        }
+
+        BufferedImage result = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        int[] out = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+        if (width == targetWidth && height == targetHeight) {
+            System.arraycopy(pixels, 0, out, 0, targetWidth * targetHeight);
+            return result;
+        }
+
+        int[] horizontal = new int[targetWidth * height];
+        resampleRows(pixels, width, height, horizontal, targetWidth, weights(width, targetWidth));
+        resampleColumns(horizontal, targetWidth, height, out, targetHeight, weights(height, targetHeight));
+        return result;
+    }
+
+    /**
+     * The image's own pixel array when it is a plain {@code TYPE_INT_RGB} raster (what PDFBox
+     * renders), so it can be read without copying. Reading the array makes Java2D stop
+     * caching the image in video memory, which does not matter for images resized once.
+     */
+    private static int[] directPixels(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0) {
+            return null;
+        }
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        return data.length == image.getWidth() * image.getHeight() ? data : null;
+    }
+
+    /**
+     * Copy any image into packed RGB; decoded JPEGs ({@code TYPE_3BYTE_BGR}) are read directly
+     */
+    private static void readPixels(BufferedImage image, int[] pixels) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            if (data.length == width * height * 3) {
+                for (int i = 0, j = 0; i < width * height; i++, j += 3) {
+                    pixels[i] = (data[j + 2] & 0xFF) << 16 | (data[j + 1] & 0xFF) << 8 | (data[j] & 0xFF);
+                }
+                return;
+            }
+        }
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+    }
+
+    /**
+     * 2x2 box filter; {@code out} may be {@code in}, since each output pixel is written at or
+     * before the first input pixel still to be read
+     */
+    private static void halve(int[] in, int width, int height, int[] out) {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        for (int y = 0; y < halfHeight; y++) {
+            int row = 2 * y * width;
+            int outRow = y * halfWidth;
+            for (int x = 0; x < halfWidth; x++) {
+                int i = row + 2 * x;
+                int a = in[i];
+                int b = in[i + 1];
+                int c = in[i + width];
+                int d = in[i + width + 1];
+                int r = ((a >> 16 & 0xFF) + (b >> 16 & 0xFF) + (c >> 16 & 0xFF) + (d >> 16 & 0xFF) + 2) >> 2;
+                int g = ((a >> 8 & 0xFF) + (b >> 8 & 0xFF) + (c >> 8 & 0xFF) + (d >> 8 & 0xFF) + 2) >> 2;
+                int bl = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+                out[outRow + x] = r << 16 | g << 8 | bl;
+            }
+        }
+    }
+
+    /**
+     * Contributions of source pixels to each target pixel along one axis
+     */
+    private record Weights(int taps, int[] start, int[] count, int[] weight) {
+    }
+
+    private Weights weights(int sourceSize, int targetSize) {
+        double scale = (double) sourceSize / targetSize;
+        // When reducing, stretch the filter over the source pixels each target pixel covers
+        double stretch = Math.max(scale, 1);
+        double support = filter.radius * stretch;
+        int taps = (int) Math.ceil(support) * 2 + 1;
+
+        int[] start = new int[targetSize];
+        int[] count = new int[targetSize];
+        int[] weight = new int[targetSize * taps];
+        double[] exact = new double[taps];
+
+        for (int i = 0; i < targetSize; i++) {
+            double center = (i + 0.5) * scale - 0.5;
+            int first = Math.max(0, (int) Math.floor(center - support) + 1);
+            int last = Math.min(sourceSize - 1, (int) Math.ceil(center + support) - 1);
+            int n = Math.min(taps, last - first + 1);
+
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                exact[k] = filter.weight((first + k - center) / stretch);
+                sum += exact[k];
+            }
+            // Fixed-point weights that add up to exactly one, so flat areas keep their colour
+            int total = 0;
+            int largest = 0;
+            for (int k = 0; k < n; k++) {
+                int w = (int) Math.round(exact[k] / sum * WEIGHT_ONE);
+                weight[i * taps + k] = w;
+                total += w;
+                if (w > weight[i * taps + largest]) {
+                    largest = k;
+                }
+            }
+            weight[i * taps + largest] += WEIGHT_ONE - total;
+            start[i] = first;
+            count[i] = n;
+        }
+        return new Weights(taps, start, count, weight);
+    }
+
+    private static void resampleRows(int[] in, int width, int height, int[] out, int targetWidth, Weights weights) {
+        int taps = weights.taps();
+        int[] start = weights.start();
+        int[] count = weights.count();
+        int[] weight = weights.weight();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int outRow = y * targetWidth;
+            for (int x = 0; x < targetWidth; x++) {
+                int r = WEIGHT_ROUND;
+                int g = WEIGHT_ROUND;
+                int b = WEIGHT_ROUND;
+                int i = row + start[x];
+                int w = x * taps;
+                for (int k = count[x]; k > 0; k--, i++, w++) {
+                    int pixel = in[i];
+                    int f = weight[w];
+                    r += (pixel >> 16 & 0xFF) * f;
+                    g += (pixel >> 8 & 0xFF) * f;
+                    b += (pixel & 0xFF) * f;
+                }
+                out[outRow + x] = clamp(r >> WEIGHT_BITS) << 16 | clamp(g >> WEIGHT_BITS) << 8 | clamp(b >> WEIGHT_BITS);
+            }
+        }
+    }
+
+    private static void resampleColumns(int[] in, int width, int height, int[] out, int targetHeight, Weights weights) {
+        int taps = weights.taps();
+        int[] start = weights.start();
+        int[] count = weights.count();
+        int[] weight = weights.weight();
+        for (int y = 0; y < targetHeight; y++) {
+            int first = start[y] * width;
+            int n = count[y];
+            int w0 = y * taps;
+            int outRow = y * width;
+            for (int x = 0; x < width; x++) {
+                int r = WEIGHT_ROUND;
+                int g = WEIGHT_ROUND;
+                int b = WEIGHT_ROUND;
+                int i = first + x;
+                for (int k = 0; k < n; k++, i += width) {
+                    int pixel = in[i];
+                    int f = weight[w0 + k];
+                    r += (pixel >> 16 & 0xFF) * f;
+                    g += (pixel >> 8 & 0xFF) * f;
+                    b += (pixel & 0xFF) * f;
+                }
+                out[outRow + x] = clamp(r >> WEIGHT_BITS) << 16 | clamp(g >> WEIGHT_BITS) << 8 | clamp(b >> WEIGHT_BITS);
+            }
+        }
+    }
+
+    // Lanczos lobes can overshoot 0..255 at sharp edges
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
@@ -0,0 +1,127 @@
+package com.thuvien.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thuvien.dto.ImportManifestEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads bulk import manifests.
+ *
+ * CSV needs a header row; columns are matched by name (name/title, author, category,
+ * path/file) in any order, values may be quoted. JSON is an array of
+ * {@link ImportManifestEntry} objects.
+ */
+public final class ImportManifest {
+
+    private ImportManifest() {
+    }
+
+    /**
+     * Parse a manifest, picking the format from the file name (.json, anything else is CSV)
+     */
+    public static List<ImportManifestEntry> read(InputStream in, String fileName, ObjectMapper objectMapper)
+            throws IOException {
+        if (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".json")) {
+            List<ImportManifestEntry> entries = objectMapper.readValue(in, new TypeReference<List<ImportManifestEntry>>() {
+            });
+            for (ImportManifestEntry entry : entries) {
+                if (entry.path() == null || entry.path().isBlank()) {
+                    throw new IllegalArgumentException("Manifest entry without path: " + entry);
+                }
+            }
+            return entries;
+        }
+        return readCsv(in);
+    }
+
+    static List<ImportManifestEntry> readCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return List.of();
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        int nameColumn = -1, authorColumn = -1, categoryColumn = -1, pathColumn = -1;
+        List<String> columns = splitLine(header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "name", "title" -> nameColumn = i;
+                case "author" -> authorColumn = i;
+                case "category" -> categoryColumn = i;
+                case "path", "file" -> pathColumn = i;
+                default -> {
+                }
+            }
+        }
+        if (pathColumn < 0) {
+            throw new IllegalArgumentException("Manifest header has no path column");
+        }
+
+        List<ImportManifestEntry> entries = new ArrayList<>();
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> values = splitLine(line);
+            String path = column(values, pathColumn);
+            if (path == null) {
+                throw new IllegalArgumentException("Manifest line " + lineNumber + " has no path");
+            }
+            entries.add(new ImportManifestEntry(column(values, nameColumn), column(values, authorColumn),
+                    column(values, categoryColumn), path));
+        }
+        return entries;
+    }
+
+    private static String column(List<String> values, int index) {
+        if (index < 0 || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Split one CSV line; quoted values may contain commas and "" for a quote
+    private static List<String> splitLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,843 @@
+package com.thuvien.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thuvien.dto.ImportManifestEntry;
+import com.thuvien.dto.ImportProgress;
+import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
+import com.thuvien.repository.BookRepository;
+import com.thuvien.storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk ingestion of PDFs from a directory, a ZIP archive or a manifest (CSV/JSON).
+ *
+ * Jobs run one at a time on a coordinator thread that feeds a bounded worker pool. Each
+ * worker hashes a file, skips it if a book with the same content hash already exists,
+ * and stores it; stored books are inserted in batches with one transaction per batch.
+ * Thumbnails go through the normal persistent thumbnail queue (status PENDING).
+ *
+ * Skipping by content hash makes jobs resumable: re-running a cancelled or interrupted
+ * import only processes the files that did not make it into the catalogue. Each job also
+ * keeps a checkpoint in the work directory (its file list once, and after every batch which
+ * files are done), so jobs survive a restart as CANCELLED and a resume skips finished files
+ * without hashing them again.
+ */
+@Service
+public class ImportService {
+
+    private static final int MAX_ERRORS = 50;
+    private static final int MAX_NAME_LENGTH = 300;
+    private static final String CHECKPOINT_PREFIX = "import-job-";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private ThumbnailJobService thumbnailJobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadSupport threadSupport;
+
+    // Directories, archives and manifest paths must be inside this folder
+    @Value("${books.import.root:D:\\import}")
+    private String importRoot;
+
+    @Value("${books.import.workers:4}")
+    private int workers;
+
+    @Value("${books.import.batch-size:100}")
+    private int batchSize;
+
+    // Finished jobs kept for progress queries
+    @Value("${books.import.history:20}")
+    private int history;
+
+    @Value("${books.import.work-dir:${java.io.tmpdir}/thuvien-import}")
+    private String workDir;
+
+    private Path root;
+    private ExecutorService coordinator;
+    private ThreadPoolExecutor pool;
+    // Bounds the files being processed, so a 20k-file job never queues 20k tasks
+    private Semaphore permits;
+
+    private final Map<String, ImportJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @PostConstruct
+    public void start() throws IOException {
+        root = Paths.get(importRoot).toAbsolutePath().normalize();
+        Files.createDirectories(Paths.get(workDir));
+        restoreCheckpoints();
+
+        coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Workers mostly wait on disk and Drive uploads: virtual threads when enabled
+        pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                threadSupport.ioThreadFactory("import-worker-"));
+        permits = new Semaphore(workers * 3);
+        new ExecutorServiceMetrics(pool, "import-workers", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Imported batches are committed; the rest is picked up by resuming the job
+        jobs.values().forEach(job -> job.cancelled = true);
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+        // Let the coordinator write the final checkpoint
+        coordinator.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Import every PDF under a directory (recursively); sub-folder names become categories
+     * unless a category is given
+     */
+    public ImportProgress importDirectory(String directory, String author, String category) throws IOException {
+        Path dir = resolve(directory);
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+
+        List<ImportItem> items = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(path -> Files.isRegularFile(path) && isPdf(path.getFileName().toString()))
+                    .sorted()
+                    .forEach(path -> {
+                        Path folder = dir.relativize(path).getParent();
+                        String itemCategory = category != null && !category.isBlank() ? category
+                                : folder != null ? folder.getFileName().toString() : null;
+                        items.add(new ImportItem(titleFromFileName(path.getFileName().toString()),
+                                blankToNull(author), itemCategory, path, null));
+                    });
+        }
+        return submit(new ImportJob(newId(), "directory " + dir, items, null, false));
+    }
+
+    /**
+     * Import the files listed in a manifest; relative paths are resolved against baseDir
+     * (or the import root)
+     */
+    public ImportProgress importManifest(MultipartFile manifest, String baseDir) throws IOException {
+        Path base = baseDir != null && !baseDir.isBlank() ? resolve(baseDir) : root;
+        List<ImportManifestEntry> entries;
+        try (InputStream in = manifest.getInputStream()) {
+            entries = ImportManifest.read(in, manifest.getOriginalFilename(), objectMapper);
+        }
+
+        List<ImportItem> items = new ArrayList<>();
+        for (ImportManifestEntry entry : entries) {
+            Path file = resolve(base.resolve(entry.path()).toString());
+            String name = entry.name() != null && !entry.name().isBlank() ? entry.name()
+                    : titleFromFileName(file.getFileName().toString());
+            items.add(new ImportItem(name, blankToNull(entry.author()), blankToNull(entry.category()), file, null));
+        }
+        return submit(new ImportJob(newId(), "manifest " + manifest.getOriginalFilename(), items, null, false));
+    }
+
+    /**
+     * Import an uploaded ZIP archive
+     */
+    public ImportProgress importZip(MultipartFile archive, String author, String category) throws IOException {
+        // The multipart temp file is gone once the request ends, so keep a copy for the job
+        Path zip = Paths.get(workDir, "import-" + UUID.randomUUID() + ".zip");
+        archive.transferTo(zip);
+        try {
+            return importZip(zip, "zip " + archive.getOriginalFilename(), author, category, true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(zip);
+            throw e;
+        }
+    }
+
+    /**
+     * Import a ZIP archive already on the server (under the import root)
+     */
+    public ImportProgress importZip(String path, String author, String category) throws IOException {
+        Path zip = resolve(path);
+        if (!Files.isRegularFile(zip)) {
+            throw new IllegalArgumentException("File not found: " + path);
+        }
+        return importZip(zip, "zip " + zip, author, category, false);
+    }
+
+    /**
+     * ZIP layout: PDFs anywhere in the archive, optionally with manifest.csv or manifest.json
+     * at the root whose paths are entry names
+     */
+    private ImportProgress importZip(Path zip, String source, String author, String category, boolean ownsZip)
+            throws IOException {
+        List<ImportItem> items = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry manifestEntry = zipFile.getEntry("manifest.json");
+            if (manifestEntry == null) {
+                manifestEntry = zipFile.getEntry("manifest.csv");
+            }
+
+            if (manifestEntry != null) {
+                List<ImportManifestEntry> entries;
+                try (InputStream in = zipFile.getInputStream(manifestEntry)) {
+                    entries = ImportManifest.read(in, manifestEntry.getName(), objectMapper);
+                }
+                for (ImportManifestEntry entry : entries) {
+                    String entryName = entry.path().replace('\\', '/');
+                    String name = entry.name() != null && !entry.name().isBlank() ? entry.name()
+                            : titleFromFileName(entryName);
+                    items.add(new ImportItem(name, blankToNull(entry.author()), blankToNull(entry.category()),
+                            null, entryName));
+                }
+            } else {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !isPdf(entry.getName())) {
+                        continue;
+                    }
+                    String entryName = entry.getName();
+                    int slash = entryName.lastIndexOf('/');
+                    String folder = slash > 0 ? entryName.substring(0, slash) : null;
+                    String itemCategory = category != null && !category.isBlank() ? category
+                            : folder != null ? folder.substring(folder.lastIndexOf('/') + 1) : null;
+                    items.add(new ImportItem(titleFromFileName(entryName), blankToNull(author), itemCategory,
+                            null, entryName));
+                }
+            }
+        }
+        return submit(new ImportJob(newId(), source, items, zip, ownsZip));
+    }
+
+    /**
+     * Start a new job over the same files. Files the checkpoint records as done are not
+     * read again; the others are skipped by hash if they made it into the catalogue anyway.
+     */
+    public Optional<ImportProgress> resume(String id) {
+        ImportJob previous = jobs.get(id);
+        if (previous == null) {
+            return Optional.empty();
+        }
+        if (previous.status.equals("QUEUED") || previous.status.equals("RUNNING")) {
+            throw new IllegalStateException("Import " + id + " is still running");
+        }
+        ImportJob job;
+        synchronized (previous) {
+            if (previous.zip != null && !Files.exists(previous.zip)) {
+                throw new IllegalStateException("Archive of import " + id + " no longer exists");
+            }
+            // An uploaded archive now belongs to the new job
+            job = new ImportJob(newId(), previous.source, previous.items, previous.zip, previous.ownsZip);
+            previous.ownsZip = false;
+            job.resumeFrom(previous);
+        }
+        checkpoint(previous);
+        return Optional.of(submit(job));
+    }
+
+    /**
+     * Stop a job; files already being processed finish and are saved
+     */
+    public Optional<ImportProgress> cancel(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.finishedAt == null) {
+            job.cancelled = true;
+        }
+        return Optional.of(job.toProgress());
+    }
+
+    public Optional<ImportProgress> getProgress(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(ImportJob::toProgress);
+    }
+
+    public List<ImportProgress> getJobs() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(ImportJob::toProgress).toList();
+        }
+    }
+
+    private ImportProgress submit(ImportJob job) {
+        writeItems(job);
+        checkpoint(job);
+        jobs.put(job.id, job);
+        evictHistory();
+        coordinator.execute(() -> run(job));
+        return job.toProgress();
+    }
+
+    private void run(ImportJob job) {
+        job.startedAt = LocalDateTime.now();
+        job.startedNanos = System.nanoTime();
+        job.status = "RUNNING";
+        System.out.println("Import " + job.id + " started: " + job.items.size() + " files from " + job.source);
+
+        Phaser pending = new Phaser(1);
+        try (ZipFile zipFile = job.zip != null ? new ZipFile(job.zip.toFile()) : null) {
+            for (int i = 0; i < job.items.size(); i++) {
+                if (job.cancelled) {
+                    break;
+                }
+                if (job.isDone(i)) {
+                    continue;
+                }
+                int index = i;
+                permits.acquire();
+                pending.register();
+                try {
+                    pool.execute(() -> {
+                        try {
+                            process(job, index, zipFile);
+                        } finally {
+                            pending.arriveAndDeregister();
+                            permits.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    pending.arriveAndDeregister();
+                    permits.release();
+                    throw e;
+                }
+            }
+            // Interruptible, so shutdownNow() stops a coordinator waiting for its workers
+            pending.awaitAdvanceInterruptibly(pending.arrive());
+            flush(job, job.drain());
+            job.status = job.cancelled ? "CANCELLED" : "COMPLETED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "CANCELLED";
+        } catch (Exception e) {
+            job.error("Import failed: " + e.getMessage());
+            job.status = "FAILED";
+        } finally {
+            job.finishedNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            if (job.status.equals("COMPLETED")) {
+                job.deleteOwnedZip();
+            }
+            checkpoint(job);
+            System.out.println("Import " + job.id + " " + job.status.toLowerCase(Locale.ROOT)
+                    + ": " + job.imported + " imported, " + job.skipped + " skipped, " + job.failed + " failed");
+        }
+    }
+
+    // Hash, deduplicate and store one file; the book row is written with the next batch
+    private void process(ImportJob job, int index, ZipFile zipFile) {
+        if (job.cancelled) {
+            return;
+        }
+        ImportItem item = job.items.get(index);
+        SpooledUpload spooled = null;
+        boolean handedOff = false;
+        try {
+            Path file;
+            String sha256;
+            if (item.entryName() != null) {
+                ZipEntry entry = zipFile.getEntry(item.entryName());
+                if (entry == null) {
+                    throw new IOException("not in archive");
+                }
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    spooled = SpooledUpload.spool(in);
+                }
+                file = spooled.getPath();
+                sha256 = spooled.getSha256();
+                job.bytes.addAndGet(spooled.getSize());
+            } else {
+                file = item.file();
+                sha256 = SpooledUpload.sha256(file);
+                job.bytes.addAndGet(Files.size(file));
+            }
+
+            // Already in the catalogue (earlier run or upload), or twice in this import
+            if (!job.hashes.add(sha256) || bookRepository.existsByContentHash(sha256)) {
+                job.skipped.incrementAndGet();
+                meterRegistry.counter("books.import.files", "outcome", "skipped").increment();
+                job.markDone(index);
+                return;
+            }
+
+            StorageBackend storage = storageService.getActive();
+            // A file from the import folder stays the user's, so it is copied; our own spool may be linked
+            String fileName = BookService.storageFileName(item.name());
+            String bookPath = spooled != null
+                    ? storage.putOwned(file, fileName, "application/pdf", sha256)
+                    : storage.put(file, fileName, "application/pdf", sha256);
+
+            Book book = new Book(truncate(item.name()), item.author(), item.category(), bookPath);
+            book.setContentHash(sha256);
+            book.setViews(0L);
+            book.setThumbnailStatus(ThumbnailStatus.PENDING);
+
+            // Remote storage: keep a local copy so the thumbnail job needs no download
+            boolean stage = storage.localPath(bookPath) == null;
+            List<PendingBook> batch = job.add(new PendingBook(index, book, stage ? file : null, stage ? spooled : null), batchSize);
+            handedOff = stage && spooled != null;
+            if (batch != null) {
+                flush(job, batch);
+            }
+        } catch (Exception e) {
+            job.failed.incrementAndGet();
+            meterRegistry.counter("books.import.files", "outcome", "failed").increment();
+            job.error(describe(item) + ": " + e.getMessage());
+        } finally {
+            if (spooled != null && !handedOff) {
+                closeQuietly(spooled);
+            }
+        }
+    }
+
+    private void flush(ImportJob job, List<PendingBook> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Book> books = batch.stream().map(PendingBook::book).toList();
+        List<Book> saved;
+        try {
+            saved = bookService.saveImported(books);
+        } catch (DataIntegrityViolationException e) {
+            // Some content was stored meanwhile (an upload or another import): save one by one
+            saveSeparately(job, batch);
+            return;
+        } catch (RuntimeException e) {
+            job.failed.addAndGet(batch.size());
+            meterRegistry.counter("books.import.files", "outcome", "failed").increment(batch.size());
+            job.error("Batch of " + batch.size() + " books not saved: " + e.getMessage());
+            batch.forEach(pendingBook -> closeQuietly(pendingBook.spooled()));
+            return;
+        }
+        afterSave(job, batch, saved);
+    }
+
+    // The batch hit the content_hash unique index: keep the rest, skip the duplicates
+    private void saveSeparately(ImportJob job, List<PendingBook> batch) {
+        List<PendingBook> kept = new ArrayList<>();
+        List<Book> saved = new ArrayList<>();
+        for (PendingBook pendingBook : batch) {
+            Book book = pendingBook.book();
+            // Ids assigned by the rolled-back batch are not in the table
+            book.setId(null);
+            try {
+                saved.addAll(bookService.saveImported(List.of(book)));
+                kept.add(pendingBook);
+            } catch (DataIntegrityViolationException e) {
+                job.skipped.incrementAndGet();
+                meterRegistry.counter("books.import.files", "outcome", "skipped").increment();
+                job.markDone(pendingBook.index());
+                bookService.discardStored(book.getBookPath());
+                closeQuietly(pendingBook.spooled());
+            } catch (RuntimeException e) {
+                job.failed.incrementAndGet();
+                meterRegistry.counter("books.import.files", "outcome", "failed").increment();
+                job.error(book.getName() + ": " + e.getMessage());
+                closeQuietly(pendingBook.spooled());
+            }
+        }
+        afterSave(job, kept, saved);
+    }
+
+    private void afterSave(ImportJob job, List<PendingBook> batch, List<Book> saved) {
+        job.imported.addAndGet(saved.size());
+        meterRegistry.counter("books.import.files", "outcome", "imported").increment(saved.size());
+
+        for (int i = 0; i < saved.size(); i++) {
+            PendingBook pendingBook = batch.get(i);
+            Long bookId = saved.get(i).getId();
+            job.markDone(pendingBook.index());
+            try {
+                if (pendingBook.spooled() != null) {
+                    thumbnailJobService.stagePdf(pendingBook.spooled(), bookId);
+                } else if (pendingBook.stagedFile() != null) {
+                    thumbnailJobService.stagePdf(pendingBook.stagedFile(), bookId);
+                }
+            } catch (IOException e) {
+                // The thumbnail job downloads the PDF instead
+                System.err.println("Failed to stage PDF for book " + bookId + ": " + e.getMessage());
+            } finally {
+                closeQuietly(pendingBook.spooled());
+            }
+            // Stays PENDING in the database if the thumbnail queue is full
+            thumbnailJobService.submit(bookId);
+        }
+        checkpoint(job);
+    }
+
+    /**
+     * Write the file list of a job; it never changes, so it is kept apart from the progress
+     */
+    private void writeItems(ImportJob job) {
+        try {
+            writeAtomically(itemsFile(job.id), job.items);
+        } catch (IOException e) {
+            System.err.println("Failed to write import checkpoint " + job.id + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the job's progress and finished files atomically; a resume after a restart starts from it
+     */
+    private void checkpoint(ImportJob job) {
+        // Batches flush on several workers: one writer per job at a time
+        synchronized (job.checkpointLock) {
+            try {
+                writeAtomically(checkpointFile(job.id), job.toCheckpoint());
+            } catch (IOException e) {
+                System.err.println("Failed to write import checkpoint " + job.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeAtomically(Path file, Object value) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".part");
+        objectMapper.writeValue(temp.toFile(), value);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Bring back the jobs from before a restart, oldest first, so they can be resumed
+     */
+    private void restoreCheckpoints() {
+        List<ImportJob> restored = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(workDir))) {
+            for (Path file : files.filter(ImportService::isCheckpoint).toList()) {
+                try {
+                    Checkpoint checkpoint = objectMapper.readValue(file.toFile(), Checkpoint.class);
+                    List<ImportItem> items = objectMapper.readValue(itemsFile(checkpoint.progress().id()).toFile(),
+                            objectMapper.getTypeFactory().constructCollectionType(List.class, ImportItem.class));
+                    restored.add(ImportJob.restore(checkpoint, items));
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Ignoring unreadable import checkpoint " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read import checkpoints: " + e.getMessage());
+        }
+        restored.sort(Comparator.comparing(job -> job.createdAt));
+        for (ImportJob job : restored) {
+            jobs.put(job.id, job);
+            System.out.println("Import " + job.id + " restored (" + job.status.toLowerCase(Locale.ROOT)
+                    + ", " + job.doneCount() + " of " + job.items.size() + " files done)");
+        }
+    }
+
+    private void deleteCheckpoint(ImportJob job) {
+        try {
+            Files.deleteIfExists(checkpointFile(job.id));
+            Files.deleteIfExists(itemsFile(job.id));
+        } catch (IOException e) {
+            System.err.println("Failed to delete import checkpoint " + job.id + ": " + e.getMessage());
+        }
+    }
+
+    private Path checkpointFile(String id) {
+        return Paths.get(workDir, CHECKPOINT_PREFIX + id + ".json");
+    }
+
+    private Path itemsFile(String id) {
+        return Paths.get(workDir, CHECKPOINT_PREFIX + id + ".items.json");
+    }
+
+    private static boolean isCheckpoint(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(".json") && !name.endsWith(".items.json");
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void evictHistory() {
+        synchronized (jobs) {
+            Iterator<ImportJob> iterator = jobs.values().iterator();
+            int excess = jobs.size() - history;
+            while (excess > 0 && iterator.hasNext()) {
+                ImportJob job = iterator.next();
+                if (job.finishedAt != null) {
+                    job.deleteOwnedZip();
+                    deleteCheckpoint(job);
+                    iterator.remove();
+                    excess--;
+                }
+            }
+        }
+    }
+
+    private Path resolve(String path) {
+        Path resolved = root.resolve(path).toAbsolutePath().normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the import root: " + path);
+        }
+        return resolved;
+    }
+
+    private static boolean isPdf(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    // "some/folder/Clean_Code.pdf" -> "Clean Code"
+    private static String titleFromFileName(String fileName) {
+        String name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.replace('_', ' ').trim();
+    }
+
+    private static String truncate(String name) {
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String describe(ImportItem item) {
+        return item.entryName() != null ? item.entryName() : item.file().toString();
+    }
+
+    private static void closeQuietly(SpooledUpload spooled) {
+        if (spooled == null) {
+            return;
+        }
+        try {
+            spooled.close();
+        } catch (IOException e) {
+            System.err.println("Failed to delete spooled import file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A file to import: a path on disk, or an entry of the job's ZIP archive
+     */
+    private record ImportItem(String name, String author, String category, Path file, String entryName) {
+    }
+
+    /**
+     * A stored file waiting for its batch insert, with what the thumbnail job should get staged
+     */
+    private record PendingBook(int index, Book book, Path stagedFile, SpooledUpload spooled) {
+    }
+
+    /**
+     * Saved state of a job; {@code done} is a {@link BitSet} of item indexes
+     * @param carried files done by earlier runs of a resumed job, excluded from its rate
+     */
+    private record Checkpoint(ImportProgress progress, LocalDateTime createdAt, long[] done, int carried,
+                              String zip, boolean ownsZip) {
+    }
+
+    private static class ImportJob {
+
+        final String id;
+        final String source;
+        final List<ImportItem> items;
+        final Path zip;
+        boolean ownsZip;
+
+        volatile String status = "QUEUED";
+        volatile boolean cancelled;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile long startedNanos;
+        volatile long finishedNanos;
+
+        final AtomicInteger imported = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final Set<String> hashes = ConcurrentHashMap.newKeySet();
+        final Object checkpointLock = new Object();
+        LocalDateTime createdAt = LocalDateTime.now();
+        // Files done by earlier runs of a resumed job
+        int carried;
+
+        private final ArrayDeque<String> errors = new ArrayDeque<>();
+        private List<PendingBook> batch = new ArrayList<>();
+        // Items imported (row committed) or skipped; failed items are tried again on resume
+        private final BitSet doneItems = new BitSet();
+
+        ImportJob(String id, String source, List<ImportItem> items, Path zip, boolean ownsZip) {
+            this.id = id;
+            this.source = source;
+            this.items = items;
+            this.zip = zip;
+            this.ownsZip = ownsZip;
+        }
+
+        /**
+         * A job from a checkpoint; one that was still running when the app stopped is CANCELLED
+         */
+        static ImportJob restore(Checkpoint checkpoint, List<ImportItem> items) {
+            ImportProgress saved = checkpoint.progress();
+            Path zip = checkpoint.zip() != null ? Paths.get(checkpoint.zip()) : null;
+            ImportJob job = new ImportJob(saved.id(), saved.source(), items, zip, checkpoint.ownsZip());
+            job.createdAt = checkpoint.createdAt();
+            job.carried = checkpoint.carried();
+            job.doneItems.or(BitSet.valueOf(checkpoint.done()));
+            job.imported.set(saved.imported());
+            job.skipped.set(saved.skipped());
+            job.failed.set(saved.failed());
+            job.bytes.set(saved.bytes());
+            job.status = saved.status().equals("QUEUED") || saved.status().equals("RUNNING") ? "CANCELLED" : saved.status();
+            job.startedAt = saved.startedAt();
+            job.finishedAt = saved.finishedAt() != null ? saved.finishedAt() : LocalDateTime.now();
+            if (job.startedAt != null) {
+                // Keeps the reported rate: only the difference between the two matters
+                job.finishedNanos = Duration.between(job.startedAt, job.finishedAt).toNanos();
+            }
+            job.errors.addAll(saved.errors());
+            return job;
+        }
+
+        /**
+         * Carry over the files a previous run finished, and its counts for them
+         */
+        void resumeFrom(ImportJob previous) {
+            synchronized (previous) {
+                doneItems.or(previous.doneItems);
+            }
+            // Failed files are retried, so only imported and skipped ones carry over
+            imported.set(previous.imported.get());
+            skipped.set(previous.skipped.get());
+            carried = imported.get() + skipped.get();
+        }
+
+        synchronized void markDone(int index) {
+            doneItems.set(index);
+        }
+
+        synchronized boolean isDone(int index) {
+            return doneItems.get(index);
+        }
+
+        synchronized int doneCount() {
+            return doneItems.cardinality();
+        }
+
+        Checkpoint toCheckpoint() {
+            long[] finished;
+            synchronized (this) {
+                finished = doneItems.toLongArray();
+            }
+            return new Checkpoint(toProgress(), createdAt, finished, carried,
+                    zip != null ? zip.toString() : null, ownsZip);
+        }
+
+        /**
+         * Add a stored book; returns the full batch to insert, or null
+         */
+        synchronized List<PendingBook> add(PendingBook pendingBook, int batchSize) {
+            batch.add(pendingBook);
+            if (batch.size() < batchSize) {
+                return null;
+            }
+            return drain();
+        }
+
+        synchronized List<PendingBook> drain() {
+            List<PendingBook> full = batch;
+            batch = new ArrayList<>();
+            return full;
+        }
+
+        synchronized void error(String message) {
+            System.err.println("Import " + id + ": " + message);
+            if (errors.size() == MAX_ERRORS) {
+                errors.removeFirst();
+            }
+            errors.addLast(message);
+        }
+
+        synchronized void deleteOwnedZip() {
+            if (ownsZip) {
+                try {
+                    Files.deleteIfExists(zip);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete import archive " + zip + ": " + e.getMessage());
+                }
+                ownsZip = false;
+            }
+        }
+
+        ImportProgress toProgress() {
+            int done = imported.get() + skipped.get() + failed.get();
+            double rate = 0;
+            Long eta = null;
+            if (startedAt != null) {
+                long end = finishedAt != null ? finishedNanos : System.nanoTime();
+                double seconds = (end - startedNanos) / 1e9;
+                rate = seconds > 0 ? Math.max(0, done - carried) / seconds : 0;
+                if (finishedAt == null && rate > 0) {
+                    eta = Math.round((items.size() - done) / rate);
+                }
+            }
+            List<String> recentErrors;
+            synchronized (this) {
+                recentErrors = List.copyOf(errors);
+            }
+            return new ImportProgress(id, source, status, items.size(), done, imported.get(), skipped.get(),
+                    failed.get(), bytes.get(), Math.round(rate * 10) / 10.0, eta, startedAt, finishedAt, recentErrors);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.thuvien.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thuvien.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders single PDF pages to images for the reader.
+ *
+ * Rendered pages live in a weight-bounded Caffeine cache keyed by book version, page,
+ * width and format. After a page is served, the next few pages are rendered on a small
+ * background pool so that turning the page is usually a cache hit. Prefetch is best effort:
+ * when the pool's queue is full the task is dropped.
+ *
+ * Rendering happens outside the cache: a page being rendered is tracked as a future in
+ * {@code rendering}, so concurrent requests for it wait for one render without holding
+ * Caffeine's per-entry lock (which would also block unrelated keys in the same bin).
+ */
+@Service
+public class PageRenditionService {
+
+    public static final int MIN_WIDTH = 200;
+    public static final int MAX_WIDTH = 1600;
+    public static final int DEFAULT_WIDTH = 800;
+
+    // Requested widths are rounded to this step so the cache is not split per pixel
+    private static final int WIDTH_STEP = 200;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private PdfSourceService pdfSourceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pdf.pages.cache.max-memory-mb:128}")
+    private long maxMemoryMb;
+
+    @Value("${pdf.pages.prefetch:3}")
+    private int prefetchPages;
+
+    @Value("${pdf.pages.prefetch-workers:2}")
+    private int prefetchWorkers;
+
+    @Value("${pdf.pages.quality:0.8}")
+    private float quality;
+
+    private Cache<PageKey, RenderedPage> pages;
+    private Cache<String, Integer> pageCounts;
+    private ThreadPoolExecutor prefetchPool;
+    private final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+    private final Map<PageKey, CompletableFuture<RenderedPage>> rendering = new ConcurrentHashMap<>();
+
+    /**
+     * Identity of one rendition; {@code version} changes whenever the book's PDF does
+     */
+    private record PageKey(long bookId, String version, int page, int width, String format) {
+    }
+
+    /**
+     * Encoded page image
+     */
+    public record RenderedPage(byte[] bytes, String contentType, String etag, int pageCount) {
+    }
+
+    @PostConstruct
+    public void init() {
+        pages = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryMb * 1024 * 1024)
+                .weigher((PageKey key, RenderedPage page) -> page.bytes().length)
+                .recordStats()
+                .build();
+        pageCounts = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        prefetchPool = new ThreadPoolExecutor(
+                prefetchWorkers, prefetchWorkers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(prefetchWorkers * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-prefetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "pdf-pages");
+        new ExecutorServiceMetrics(prefetchPool, "page-prefetch", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchPool.shutdownNow();
+    }
+
+    /**
+     * Round a requested width to a supported step between MIN_WIDTH and MAX_WIDTH
+     */
+    public static int snapWidth(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_WIDTH;
+        }
+        int clamped = Math.max(MIN_WIDTH, Math.min(MAX_WIDTH, requested));
+        return (clamped + WIDTH_STEP - 1) / WIDTH_STEP * WIDTH_STEP;
+    }
+
+    /**
+     * Pick WebP when the client accepts it and a WebP encoder is installed, else JPEG
+     */
+    public static String negotiateFormat(String accept) {
+        if (accept != null && accept.contains("image/webp") && ThumbnailService.canEncode("webp")) {
+            return "webp";
+        }
+        return "jpeg";
+    }
+
+    /**
+     * Get one page (1-based) of a book, rendering it on a miss, and schedule prefetch of the following pages
+     * @throws IllegalArgumentException if the page does not exist
+     */
+    public RenderedPage getPage(Book book, int page, int width, String format) throws IOException {
+        String version = versionOf(book);
+        Integer knownCount = pageCounts.getIfPresent(version);
+        if (page < 1 || (knownCount != null && page > knownCount)) {
+            throw new IllegalArgumentException("Page " + page + " does not exist");
+        }
+
+        PageKey key = new PageKey(book.getId(), version, page, width, format);
+        RenderedPage rendered = pages.getIfPresent(key);
+        if (rendered == null) {
+            rendered = renderOnce(book, key);
+        }
+
+        schedulePrefetch(book, key, rendered.pageCount());
+        return rendered;
+    }
+
+    public CacheStats getStats() {
+        return pages.stats();
+    }
+
+    public long getCachedPages() {
+        return pages.estimatedSize();
+    }
+
+    public int getPrefetchQueueDepth() {
+        return prefetchPool.getQueue().size();
+    }
+
+    /**
+     * Render a missing page, or wait for the render already running for it
+     */
+    private RenderedPage renderOnce(Book book, PageKey key) throws IOException {
+        CompletableFuture<RenderedPage> claimed = new CompletableFuture<>();
+        CompletableFuture<RenderedPage> running = rendering.putIfAbsent(key, claimed);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            RenderedPage rendered = renderSingle(book, key);
+            pages.put(key, rendered);
+            claimed.complete(rendered);
+            return rendered;
+        } catch (IOException | RuntimeException e) {
+            claimed.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(key, claimed);
+        }
+    }
+
+    private static RenderedPage await(CompletableFuture<RenderedPage> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a page render", e);
+        } catch (ExecutionException e) {
+            // Rethrow as the rendering thread saw it (IllegalArgumentException for a missing page)
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private RenderedPage renderSingle(Book book, PageKey key) throws IOException {
+        try (PdfSourceService.PdfSource source = pdfSourceService.openCached(book);
+             PDDocument document = thumbnailService.openDocument(source.getPath().toFile())) {
+            int pageCount = document.getNumberOfPages();
+            pageCounts.put(key.version(), pageCount);
+            if (key.page() > pageCount) {
+                throw new IllegalArgumentException("Page " + key.page() + " does not exist");
+            }
+            return render(document, key, pageCount);
+        }
+    }
+
+    private RenderedPage render(PDDocument document, PageKey key, int pageCount) throws IOException {
+        BufferedImage image = thumbnailService.renderPage(document, key.page() - 1, key.width());
+        try {
+            byte[] bytes = thumbnailService.encode(image, key.format(), quality);
+            String etag = "\"" + ThumbnailCacheService.sha256(bytes).substring(0, 32) + "\"";
+            return new RenderedPage(bytes, "image/" + key.format(), etag, pageCount);
+        } finally {
+            image.flush();
+        }
+    }
+
+    private void schedulePrefetch(Book book, PageKey from, int pageCount) {
+        int last = Math.min(pageCount, from.page() + prefetchPages);
+        if (prefetchPages <= 0 || from.page() >= last) {
+            return;
+        }
+
+        // One prefetch per book and width at a time; the document is opened once for all pages
+        String token = from.bookId() + "@" + from.width() + "@" + from.format();
+        if (!prefetching.add(token)) {
+            return;
+        }
+
+        Runnable task = () -> {
+            try (PdfSourceService.PdfSource source = pdfSourceService.openCached(book);
+                 PDDocument document = thumbnailService.openDocument(source.getPath().toFile())) {
+                for (int page = from.page() + 1; page <= last; page++) {
+                    PageKey key = new PageKey(from.bookId(), from.version(), page, from.width(), from.format());
+                    if (pages.asMap().containsKey(key)) {
+                        continue;
+                    }
+                    // Claim the page so a request arriving meanwhile waits instead of rendering it twice
+                    CompletableFuture<RenderedPage> claimed = new CompletableFuture<>();
+                    if (rendering.putIfAbsent(key, claimed) != null) {
+                        continue;
+                    }
+                    try {
+                        RenderedPage rendered = render(document, key, pageCount);
+                        pages.put(key, rendered);
+                        claimed.complete(rendered);
+                    } catch (IOException | RuntimeException e) {
+                        claimed.completeExceptionally(e);
+                        throw e;
+                    } finally {
+                        rendering.remove(key, claimed);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to prefetch pages of book " + from.bookId() + ": " + e.getMessage());
+            } finally {
+                prefetching.remove(token);
+            }
+        };
+
+        try {
+            prefetchPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Pool busy: skip the prefetch, the pages are rendered on demand instead
+            prefetching.remove(token);
+        }
+    }
+
+    private String versionOf(Book book) {
+        return book.getId() + "@" + book.getBookPath() + "@" + book.getUpdatedAt();
+    }
+}
@@ -0,0 +1,215 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.storage.DriveUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Resolves a book's PDF to a readable local file.
+ *
+ * Local books are read in place. Drive-backed books are downloaded to a temp file that
+ * is deleted when the returned {@link PdfSource} is closed, or, via {@link #openCached},
+ * kept in a small on-disk cache for callers that read the same book repeatedly. Cached
+ * files are reference counted while open, and pruning never deletes one that is in use.
+ */
+@Service
+public class PdfSourceService {
+
+    @Autowired
+    private StorageService storageService;
+
+    @Value("${pdf.source.cache-dir:${java.io.tmpdir}/thuvien-pdf-cache}")
+    private String cacheDir;
+
+    @Value("${pdf.source.cache-max-files:20}")
+    private int cacheMaxFiles;
+
+    // Cached file -> number of open PdfSources reading it; guarded by this
+    private final Map<Path, Integer> readers = new HashMap<>();
+
+    /**
+     * A local copy of a book's PDF
+     */
+    public static class PdfSource implements AutoCloseable {
+
+        private final Path path;
+        private final boolean temporary;
+        private final Runnable release;
+
+        PdfSource(Path path, boolean temporary) {
+            this(path, temporary, null);
+        }
+
+        PdfSource(Path path, boolean temporary, Runnable release) {
+            this.path = path;
+            this.temporary = temporary;
+            this.release = release;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (release != null) {
+                release.run();
+            }
+            if (temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Open the PDF of a book
+     * @param book Book whose PDF is needed
+     * @param staged Local copy already on disk (e.g. the spooled upload), or null
+     */
+    public PdfSource open(Book book, Path staged) throws IOException {
+        if (staged != null && Files.exists(staged)) {
+            return new PdfSource(staged, false);
+        }
+
+        String bookPath = book.getBookPath();
+        if (bookPath == null || bookPath.isEmpty()) {
+            throw new IOException("Book " + book.getId() + " has no PDF");
+        }
+
+        if (!bookPath.startsWith("http")) {
+            Path local = Paths.get(bookPath);
+            if (!Files.exists(local)) {
+                throw new IOException("PDF file not found: " + bookPath);
+            }
+            return new PdfSource(local, false);
+        }
+
+        // A copy kept by openCached saves the download, and still works while Drive is down
+        Path cached = cachedPath(bookPath);
+        if (acquire(cached)) {
+            return cachedSource(cached);
+        }
+        return new PdfSource(download(bookPath), true);
+    }
+
+    /**
+     * Like {@link #open(Book, Path)}, but Drive downloads are kept on disk (bounded by file
+     * count, oldest dropped first) so later calls for the same file skip the download
+     */
+    public PdfSource openCached(Book book) throws IOException {
+        String bookPath = book.getBookPath();
+        if (bookPath == null || !bookPath.startsWith("http")) {
+            return open(book, null);
+        }
+
+        Path dir = Paths.get(cacheDir);
+        Files.createDirectories(dir);
+        Path cached = cachedPath(bookPath);
+        if (acquire(cached)) {
+            try {
+                // Touch so pruning drops the least recently used files
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                release(cached);
+                throw e;
+            }
+            return cachedSource(cached);
+        }
+
+        Path downloaded = download(bookPath, dir);
+        try {
+            // Rename into place so concurrent readers never see a partial file
+            Files.move(downloaded, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(downloaded);
+            throw e;
+        }
+        if (!acquire(cached)) {
+            throw new IOException("Cached PDF disappeared: " + cached);
+        }
+        pruneCache(dir);
+        return cachedSource(cached);
+    }
+
+    // Existence check and count together, so pruning cannot delete the file in between
+    private synchronized boolean acquire(Path cached) {
+        if (!Files.exists(cached)) {
+            return false;
+        }
+        readers.merge(cached, 1, Integer::sum);
+        return true;
+    }
+
+    private synchronized void release(Path cached) {
+        readers.computeIfPresent(cached, (path, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private PdfSource cachedSource(Path cached) {
+        return new PdfSource(cached, false, () -> release(cached));
+    }
+
+    private Path cachedPath(String driveUrl) {
+        return Paths.get(cacheDir, ThumbnailCacheService.sha256(driveUrl.getBytes(StandardCharsets.UTF_8)) + ".pdf");
+    }
+
+    private synchronized void pruneCache(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> pdfs = files
+                    .filter(file -> file.getFileName().toString().endsWith(".pdf"))
+                    .sorted(Comparator.comparingLong(this::lastModified).reversed())
+                    .toList();
+            for (Path stale : pdfs.subList(Math.min(cacheMaxFiles, pdfs.size()), pdfs.size())) {
+                // Still being read: left for a later prune
+                if (!readers.containsKey(stale)) {
+                    Files.deleteIfExists(stale);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to prune PDF cache: " + e.getMessage());
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private Path download(String driveUrl) throws IOException {
+        return download(driveUrl, null);
+    }
+
+    private Path download(String driveUrl, Path dir) throws IOException {
+        Path tempFile = dir != null
+                ? Files.createTempFile(dir, "drive-pdf-", ".part")
+                : Files.createTempFile("drive-pdf-", ".pdf");
+        try {
+            storageService.forLocator(driveUrl).get(driveUrl, tempFile);
+            return tempFile;
+        } catch (DriveUnavailableException e) {
+            // Keep the type so callers can answer 503 instead of 500
+            Files.deleteIfExists(tempFile);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw new IOException("Failed to download PDF from Google Drive: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over book name, author and category.
+ *
+ * Tokens are folded to lowercase ASCII (Vietnamese diacritics removed, đ → d) so
+ * "mat biec" finds "Mắt Biếc". Every query token must match an indexed token exactly or
+ * as a prefix; results are ranked by field weight and match quality. The index is built
+ * at startup and kept current by listening to {@link BookChangedEvent}s.
+ *
+ * Only ids and tokens are kept. A search ranks all matches in memory, keeps the best
+ * {@code limit} ids and resolves them through {@link BookCacheService}, so results carry
+ * current view counts and thumbnails and a common word cannot load the whole catalogue.
+ *
+ * A rebuild reads the catalogue without holding the lock and swaps the new index in;
+ * changes that arrive while it loads are replayed on top, so none is lost.
+ */
+@Service
+public class SearchIndexService {
+
+    public static final int FIELD_NAME = 1;
+    public static final int FIELD_AUTHOR = 1 << 1;
+    public static final int FIELD_CATEGORY = 1 << 2;
+    public static final int ALL_FIELDS = FIELD_NAME | FIELD_AUTHOR | FIELD_CATEGORY;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; replaced as a whole by rebuild()
+    private Postings postings = new Postings();
+
+    // Books indexed (or removed, null) while a rebuild is loading; guarded by lock, null otherwise
+    private Map<Long, Book> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    /**
+     * Token postings and the tokens of each book, to remove it again
+     */
+    private static final class Postings {
+        // token -> (book id -> bitmask of fields containing the token)
+        final NavigableMap<String, Map<Long, Integer>> tokens = new TreeMap<>();
+        final Map<Long, Set<String>> documentTokens = new HashMap<>();
+    }
+
+    /**
+     * Build the index from the database once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Searches keep using the current index while the catalogue loads
+        Postings rebuilt = new Postings();
+        List<Book> books;
+        try {
+            books = bookRepository.findAll();
+            for (Book book : books) {
+                add(rebuilt, book);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Book> change : changedDuringRebuild.entrySet()) {
+                delete(rebuilt, change.getKey());
+                if (change.getValue() != null) {
+                    add(rebuilt, change.getValue());
+                }
+            }
+            changedDuringRebuild = null;
+            postings = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Search index built: " + books.size() + " books, " + rebuilt.tokens.size() + " tokens");
+    }
+
+    /**
+     * Whether the initial build has finished; callers fall back to the database until then
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Add or replace a book in the index
+     */
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(postings, book.getId());
+            add(postings, book);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(book.getId(), book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.DELETED) {
+            remove(event.bookId());
+        } else {
+            index(event.book());
+        }
+    }
+
+    /**
+     * Remove a book from the index
+     */
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            delete(postings, bookId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(bookId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Search the given fields (bitmask of FIELD_*)
+     * @param limit Maximum number of books returned
+     * @return the best matching books as currently stored, best match first
+     */
+    public List<Book> search(String query, int fields, int limit) {
+        List<Long> ids = searchIds(query, fields, limit);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Book> loaded = bookCacheService.getBooks(ids);
+        List<Book> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            // Deleted since the index lookup: skip
+            Book book = loaded.get(id);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ids of the best {@code limit} books matching the query in the given fields, best match first
+     */
+    public List<Long> searchIds(String query, int fields, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String term : terms) {
+                Map<Long, Double> termScores = scoreTerm(term, fields);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every term must match: keep the intersection
+                    Map<Long, Double> merged = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double score = termScores.get(entry.getKey());
+                        if (score != null) {
+                            merged.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())));
+
+            List<Long> result = new ArrayList<>(Math.min(ranked.size(), limit));
+            for (Map.Entry<Long, Double> entry : ranked) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.add(entry.getKey());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of books currently indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return postings.documentTokens.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lowercase and strip diacritics: "Mắt Biếc" -> "mat biec"
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split folded text into index tokens
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Double> scoreTerm(String term, int fields) {
+        Map<Long, Double> scores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> matches =
+                postings.tokens.subMap(term, true, term + Character.MAX_VALUE, false);
+
+        for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+            // Exact token beats prefix; shorter completions rank above longer ones
+            double quality = match.getKey().length() == term.length()
+                    ? 2.0
+                    : (double) term.length() / match.getKey().length();
+
+            for (Map.Entry<Long, Integer> posting : match.getValue().entrySet()) {
+                int matchedFields = posting.getValue() & fields;
+                if (matchedFields == 0) {
+                    continue;
+                }
+                double score = quality * fieldWeight(matchedFields);
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private double fieldWeight(int matchedFields) {
+        double weight = 0;
+        if ((matchedFields & FIELD_NAME) != 0) {
+            weight += 3.0;
+        }
+        if ((matchedFields & FIELD_AUTHOR) != 0) {
+            weight += 2.0;
+        }
+        if ((matchedFields & FIELD_CATEGORY) != 0) {
+            weight += 1.0;
+        }
+        return weight;
+    }
+
+    // Caller must hold the write lock, or own the postings
+    private static void add(Postings postings, Book book) {
+        Map<String, Integer> tokenFields = new HashMap<>();
+        addField(tokenFields, book.getName(), FIELD_NAME);
+        addField(tokenFields, book.getAuthor(), FIELD_AUTHOR);
+        addField(tokenFields, book.getCategory(), FIELD_CATEGORY);
+
+        for (Map.Entry<String, Integer> entry : tokenFields.entrySet()) {
+            postings.tokens.computeIfAbsent(entry.getKey(), token -> new HashMap<>())
+                    .put(book.getId(), entry.getValue());
+        }
+        postings.documentTokens.put(book.getId(), new LinkedHashSet<>(tokenFields.keySet()));
+    }
+
+    // Caller must hold the write lock, or own the postings
+    private static void delete(Postings postings, Long bookId) {
+        Set<String> tokens = postings.documentTokens.remove(bookId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Long, Integer> books = postings.tokens.get(token);
+            if (books != null) {
+                books.remove(bookId);
+                if (books.isEmpty()) {
+                    postings.tokens.remove(token);
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Integer> tokenFields, String text, int field) {
+        for (String token : tokenize(text)) {
+            tokenFields.merge(token, field, (a, b) -> a | b);
+        }
+    }
+}
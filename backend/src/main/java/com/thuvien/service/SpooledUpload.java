@@ -0,0 +1,143 @@
+package com.thuvien.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * An uploaded file held once on local disk.
+ *
+ * Multipart uploads take over the temp file the servlet container already wrote: through
+ * {@code Part.write} Tomcat renames it into place instead of copying, so the bytes hit the
+ * disk a single time, then one read pass computes the SHA-256. Other streams are copied through a fixed-size direct
+ * buffer while hashing, so heap use per upload does not depend on file size. Storage and
+ * thumbnail rendering both read this one file; closing it deletes the file unless it was
+ * moved elsewhere with {@link #moveTo(Path)}.
+ */
+public class SpooledUpload implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Path path;
+    private final long size;
+    private final String sha256;
+
+    private SpooledUpload(Path path, long size, String sha256) {
+        this.path = path;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Take over a multipart upload. Parts above spring.servlet.multipart.file-size-threshold
+     * are already on disk and are renamed by Tomcat, not copied (falling back to a copy when
+     * the temp directory is on another file system); smaller parts are written from memory.
+     */
+    public static SpooledUpload spool(MultipartFile multipartFile) throws IOException {
+        Path tempFile = Files.createTempFile("spool-", ".pdf");
+        try {
+            // The File overload goes through Part.write, which renames; transferTo(Path) always copies
+            multipartFile.transferTo(tempFile.toFile());
+            return new SpooledUpload(tempFile, Files.size(tempFile), sha256(tempFile));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a stream to a temp file, hashing it on the way
+     */
+    public static SpooledUpload spool(InputStream inputStream) throws IOException {
+        Path tempFile = Files.createTempFile("spool-", ".pdf");
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long size = 0;
+
+        try (ReadableByteChannel in = Channels.newChannel(inputStream);
+             FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    size += out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        return new SpooledUpload(tempFile, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Hash an existing file with the same buffer strategy as {@link #spool(InputStream)}
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Move the spooled file to its final location; it is no longer deleted on close
+     */
+    public Path moveTo(Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path moved = Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+        path = null;
+        return moved;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Hex encoded SHA-256 of the content
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (path != null) {
+            Files.deleteIfExists(path);
+            path = null;
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import com.thuvien.storage.StorageBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves uploaded PDFs from the local content store to the remote backend (Drive) in the
+ * background.
+ *
+ * When uploads go to Drive, {@link BookService} stores the PDF locally and returns; the
+ * book's book_path points at the local object until a worker has uploaded it and switched
+ * the path to the Drive locator. Like thumbnail jobs, the queue is the database: a book
+ * whose book_path is still under the local store root is found again by the periodic
+ * sweep, so a restart or a Drive outage only delays the move.
+ */
+@Service
+public class StorageOffloadService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadSupport threadSupport;
+
+    @Value("${storage.offload.workers:2}")
+    private int workers;
+
+    @Value("${storage.offload.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Books queued or uploading; the sweep skips them
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Local objects being uploaded: duplicates sharing one are moved by a single worker
+    private final Set<String> moving = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadSupport.ioThreadFactory("storage-offload-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("storage.offload.in.flight", inFlight, Set::size)
+                .description("Uploaded PDFs queued or being moved to remote storage")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        // Unfinished moves keep their local book_path and are picked up on next start
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue the move of a book whose PDF is still in the local store
+     */
+    public void submit(Long bookId) {
+        if (!inFlight.add(bookId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    offload(bookId);
+                } finally {
+                    inFlight.remove(bookId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full: the next sweep finds the book again
+            inFlight.remove(bookId);
+        }
+    }
+
+    /**
+     * Pick up moves that failed, did not fit in the queue or were interrupted by a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${storage.offload.sweep-interval-ms:60000}", initialDelayString = "${storage.offload.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (!storageService.offloadsUploads() || driveGuard.getCircuitState().equals("open")) {
+            return;
+        }
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        String prefix = storageService.getLocalRoot().toAbsolutePath().toString();
+        List<Book> waiting = bookRepository.findByBookPathStartingWithOrderByIdAsc(prefix,
+                PageRequest.of(0, room + inFlight.size()));
+        for (Book book : waiting) {
+            if (storageService.awaitsOffload(book.getBookPath())) {
+                submit(book.getId());
+            }
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private void offload(Long bookId) {
+        Book book = bookRepository.findById(bookId).orElse(null);
+        if (book == null || !storageService.awaitsOffload(book.getBookPath())) {
+            // Deleted, or already moved together with a duplicate
+            return;
+        }
+        String localLocator = book.getBookPath();
+        if (!moving.add(localLocator)) {
+            return;
+        }
+        StorageBackend remote = storageService.getActive();
+
+        try {
+            String remoteLocator = remoteCopy(book);
+            boolean uploaded = remoteLocator == null;
+            if (uploaded) {
+                Path file = Paths.get(localLocator);
+                if (!Files.exists(file)) {
+                    System.err.println("Local PDF of book " + bookId + " is missing: " + localLocator);
+                    return;
+                }
+                remoteLocator = remote.put(file, BookService.storageFileName(book.getName()),
+                        "application/pdf", book.getContentHash());
+            }
+
+            // Every book sharing the local object (duplicate uploads) moves with it
+            if (bookRepository.replaceBookPath(localLocator, remoteLocator) == 0) {
+                // Deleted while uploading
+                if (uploaded) {
+                    remote.delete(remoteLocator);
+                }
+                return;
+            }
+            storageService.getLocal().delete(localLocator);
+            meterRegistry.counter("storage.offload.completed", "outcome", "moved").increment();
+
+            for (Book moved : bookRepository.findByBookPath(remoteLocator)) {
+                eventPublisher.publishEvent(new BookChangedEvent(moved.getId(), BookChangedEvent.Type.UPDATED, moved));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Stays local; the sweep retries
+            meterRegistry.counter("storage.offload.completed", "outcome", "failed").increment();
+            System.err.println("Failed to move PDF of book " + bookId + " to " + remote.getName() + ": " + e.getMessage());
+        } finally {
+            moving.remove(localLocator);
+        }
+    }
+
+    /**
+     * Remote locator of a book with the same content that was already moved, if any. A
+     * duplicate upload may have copied the local path just before the original was moved.
+     */
+    private String remoteCopy(Book book) {
+        if (book.getContentHash() == null) {
+            return null;
+        }
+        return bookRepository.findFirstByContentHashOrderByIdAsc(book.getContentHash())
+                .map(Book::getBookPath)
+                .filter(path -> path != null && !path.isEmpty() && !storageService.getLocal().handles(path))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,135 @@
+package com.thuvien.service;
+
+import com.thuvien.storage.DriveClient;
+import com.thuvien.storage.DriveStorageBackend;
+import com.thuvien.storage.LocalContentStore;
+import com.thuvien.storage.StorageBackend;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Picks the {@link StorageBackend} new files are written to, and the one that can read
+ * an existing locator.
+ *
+ * {@code storage.backend} is "local" or "drive"; when unset, Drive is used if
+ * {@code google.drive.enabled} is true, as before. Drive locators are always read through
+ * the Drive client selected by {@code google.drive.use.oauth}.
+ */
+@Service
+public class StorageService {
+
+    @Autowired(required = false)
+    private GoogleDriveService googleDriveService;
+
+    @Autowired(required = false)
+    private GoogleDriveOAuthService googleDriveOAuthService;
+
+    @Value("${storage.backend:}")
+    private String backend;
+
+    @Value("${storage.local.root:D:\\uploaded_books\\objects}")
+    private String localRoot;
+
+    @Value("${google.drive.enabled:false}")
+    private boolean googleDriveEnabled;
+
+    @Value("${google.drive.use.oauth:true}")
+    private boolean useOAuth;
+
+    private StorageBackend local;
+    private StorageBackend drive;
+    private StorageBackend active;
+
+    @PostConstruct
+    public void init() throws IOException {
+        local = new LocalContentStore(Paths.get(localRoot));
+        drive = useOAuth
+                ? new DriveStorageBackend("drive-oauth", googleDriveOAuthService)
+                : new DriveStorageBackend("drive-service-account", googleDriveService);
+
+        if (backend == null || backend.isEmpty()) {
+            active = googleDriveEnabled ? drive : local;
+        } else if (backend.equalsIgnoreCase("drive")) {
+            active = drive;
+        } else if (backend.equalsIgnoreCase("local")) {
+            active = local;
+        } else {
+            throw new IllegalStateException("Unknown storage.backend: " + backend);
+        }
+        System.out.println("Storage backend: " + active.getName());
+    }
+
+    /**
+     * Backend that new uploads are written to
+     */
+    public StorageBackend getActive() {
+        return active;
+    }
+
+    /**
+     * The local content store
+     */
+    public StorageBackend getLocal() {
+        return local;
+    }
+
+    /**
+     * Whether uploads are written to a remote backend. They are then stored locally first
+     * and moved by {@link StorageOffloadService}.
+     */
+    public boolean offloadsUploads() {
+        return active != local;
+    }
+
+    /**
+     * Whether a locator is an object of the local content store still waiting to be moved
+     * to the remote backend
+     */
+    public boolean awaitsOffload(String locator) {
+        if (!offloadsUploads() || locator == null || !local.handles(locator)) {
+            return false;
+        }
+        return Paths.get(locator).toAbsolutePath().startsWith(getLocalRoot().toAbsolutePath());
+    }
+
+    /**
+     * Root of the local content store
+     */
+    public Path getLocalRoot() {
+        return Paths.get(localRoot);
+    }
+
+    /**
+     * Whether Drive is written to, or may hold books uploaded earlier
+     */
+    public boolean usesDrive() {
+        return active == drive || googleDriveEnabled;
+    }
+
+    /**
+     * Drive client behind Drive locators, chosen by {@code google.drive.use.oauth}
+     */
+    public DriveClient getDriveClient() {
+        return useOAuth ? googleDriveOAuthService : googleDriveService;
+    }
+
+    /**
+     * Backend that can read an existing book_path / thumbnail_path
+     * @throws IllegalArgumentException if no backend handles the locator (e.g. an unknown URI scheme)
+     */
+    public StorageBackend forLocator(String locator) {
+        if (drive.handles(locator)) {
+            return drive;
+        }
+        if (local.handles(locator)) {
+            return local;
+        }
+        throw new IllegalArgumentException("No storage backend for locator: " + locator);
+    }
+}
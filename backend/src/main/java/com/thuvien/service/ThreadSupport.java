@@ -0,0 +1,85 @@
+package com.thuvien.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for the app's own I/O pools, following {@code spring.threads.virtual.enabled}.
+ *
+ * With virtual threads on (Java 21+), request handling, thumbnail jobs and import workers
+ * run on virtual threads, so a slow Drive call parks cheaply instead of holding a platform
+ * thread. CPU-bound work (PDF rendering, image encoding) is not meant for virtual threads:
+ * {@link ThumbnailService} hands it to a bounded platform pool when the caller is virtual.
+ * On Java 17 the property has no effect and everything runs on platform threads as before.
+ */
+@Component
+public class ThreadSupport {
+
+    // Thread.isVirtual() only exists on Java 21+
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Whether virtual threads are enabled and supported by the running JVM
+     */
+    public boolean isVirtual() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Thread factory for a pool that mostly waits on I/O: virtual threads when enabled,
+     * else daemon platform threads named {@code prefix1}, {@code prefix2}, ...
+     */
+    public ThreadFactory ioThreadFactory(String prefix) {
+        if (isVirtual()) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        return platformThreadFactory(prefix);
+    }
+
+    /**
+     * Daemon platform threads named {@code prefix1}, {@code prefix2}, ...
+     */
+    public static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Whether the calling thread is a virtual thread
+     */
+    public static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
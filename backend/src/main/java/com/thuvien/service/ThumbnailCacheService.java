@@ -0,0 +1,234 @@
+package com.thuvien.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of encoded thumbnail bytes.
+ *
+ * Tier 1 is a size-bounded Caffeine cache (W-TinyLFU eviction) in memory. Tier 2 is a
+ * directory on disk used for images proxied from Google Drive, so they survive restarts.
+ * Entries are keyed by the identity of their source (Drive URL, or local path plus
+ * modification time), so a regenerated thumbnail never collides with a cached old one.
+ *
+ * Loading (a Drive fetch, or a resize and encode) happens outside the cache: an image being
+ * loaded is tracked as a future in {@code loading}, so concurrent requests for it wait for
+ * one load without holding Caffeine's per-entry lock, which would also block unrelated keys
+ * in the same bin.
+ */
+@Service
+public class ThumbnailCacheService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thumbnail.cache.max-memory-mb:64}")
+    private long maxMemoryMb;
+
+    @Value("${thumbnail.cache.max-disk-mb:1024}")
+    private long maxDiskMb;
+
+    @Value("${thumbnail.cache.dir:${java.io.tmpdir}/thuvien-thumbnail-cache}")
+    private String cacheDir;
+
+    private Cache<String, CachedImage> memory;
+    private final Map<String, CompletableFuture<CachedImage>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    /**
+     * Encoded image with its strong ETag
+     */
+    public record CachedImage(byte[] bytes, String etag) {
+    }
+
+    /**
+     * Produces the image bytes on a cache miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws IOException;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryMb * 1024 * 1024)
+                .weigher((String key, CachedImage image) -> image.bytes().length)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "thumbnails");
+        Gauge.builder("thumbnail.cache.disk.bytes", diskBytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Path dir = Paths.get(cacheDir);
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            diskBytes.set(files.mapToLong(this::sizeOf).sum());
+        }
+    }
+
+    /**
+     * Get an image from memory, then disk (if {@code persistent}), then the loader
+     * @param sourceKey Identity of the source image; a new key means new content
+     * @param persistent Also keep the bytes in the disk tier (for remote sources)
+     */
+    public CachedImage get(String sourceKey, boolean persistent, Loader loader) throws IOException {
+        CachedImage cached = memory.getIfPresent(sourceKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<CachedImage> claimed = new CompletableFuture<>();
+        CompletableFuture<CachedImage> running = loading.putIfAbsent(sourceKey, claimed);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            byte[] bytes = loadBytes(sourceKey, persistent, loader);
+            // Strong ETag: hash of the exact bytes served
+            CachedImage image = new CachedImage(bytes, "\"" + sha256(bytes).substring(0, 32) + "\"");
+            memory.put(sourceKey, image);
+            claimed.complete(image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            claimed.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sourceKey, claimed);
+        }
+    }
+
+    public CacheStats getStats() {
+        return memory.stats();
+    }
+
+    public long getMemoryEntries() {
+        return memory.estimatedSize();
+    }
+
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+
+    private static CachedImage await(CompletableFuture<CachedImage> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a thumbnail load");
+        } catch (ExecutionException e) {
+            // Rethrow as the loading thread saw it (FileNotFoundException for a missing Drive file)
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private byte[] loadBytes(String key, boolean persistent, Loader loader) throws IOException {
+        if (!persistent) {
+            return loader.load();
+        }
+
+        Path file = diskPath(key);
+        if (Files.exists(file)) {
+            return Files.readAllBytes(file);
+        }
+
+        byte[] bytes = loader.load();
+        // Write to a temp file and rename so readers never see a partial image
+        Path temp = Files.createTempFile(file.getParent(), "tmp-", ".part");
+        Files.write(temp, bytes);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (diskBytes.addAndGet(bytes.length) > maxDiskMb * 1024 * 1024) {
+            pruneDisk();
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the oldest files until the disk tier is back under 90% of its budget
+     */
+    private synchronized void pruneDisk() {
+        long target = maxDiskMb * 1024 * 1024 * 9 / 10;
+        if (diskBytes.get() <= target) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(Paths.get(cacheDir))) {
+            List<Path> oldestFirst = files
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .toList();
+            for (Path file : oldestFirst) {
+                if (diskBytes.get() <= target) {
+                    break;
+                }
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file)) {
+                    diskBytes.addAndGet(-size);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to prune thumbnail cache: " + e.getMessage());
+        }
+    }
+
+    private Path diskPath(String key) {
+        return Paths.get(cacheDir, sha256(key.getBytes(StandardCharsets.UTF_8)) + ".img");
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
+import com.thuvien.repository.BookRepository;
+import com.thuvien.storage.StorageBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background thumbnail generation.
+ *
+ * The queue is persistent: a book waiting for a thumbnail has thumbnail_status PENDING in
+ * the database. Jobs run on a bounded, CPU-sized worker pool; when its queue is full the
+ * job simply stays PENDING and a periodic sweep picks it up later (backpressure without
+ * failing the upload). Failures are retried with exponential backoff up to a limit.
+ */
+@Service
+public class ThumbnailJobService {
+
+    // Virtual workers spend much of a job waiting on Drive; rendering itself stays bounded by the render pool
+    private static final int VIRTUAL_WORKERS_PER_CORE = 4;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private PdfSourceService pdfSourceService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadSupport threadSupport;
+
+    // 0 = one worker per CPU core, or VIRTUAL_WORKERS_PER_CORE with virtual threads
+    @Value("${thumbnail.jobs.workers:0}")
+    private int workers;
+
+    @Value("${thumbnail.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${thumbnail.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${thumbnail.jobs.backoff-ms:2000}")
+    private long backoffMs;
+
+    @Value("${thumbnail.jobs.work-dir:${java.io.tmpdir}/thuvien-thumbnail-jobs}")
+    private String workDir;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService retryScheduler;
+
+    // Books queued, running or waiting for a retry; the sweep skips them
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Set when PENDING books were left in the database; the queue is refilled as soon as it drains
+    private final AtomicBoolean backlog = new AtomicBoolean();
+
+    // When a worker last finished an attempt, to tell a busy queue from a stuck one
+    private volatile long lastAttemptEndedAt = System.currentTimeMillis();
+
+    @PostConstruct
+    public void start() throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = workers > 0 ? workers : threadSupport.isVirtual() ? cores * VIRTUAL_WORKERS_PER_CORE : cores;
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadSupport.ioThreadFactory("thumbnail-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(Paths.get(workDir));
+
+        new ExecutorServiceMetrics(executor, "thumbnail-jobs", Tags.empty()).bindTo(meterRegistry);
+        Gauge.builder("thumbnail.jobs.in.flight", inFlight, Set::size)
+                .description("Books queued, rendering or waiting for a retry")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        executor.shutdown();
+        // Unfinished jobs stay PENDING/PROCESSING in the database and are resumed on next start
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Keep the uploaded PDF for the job, so Drive-backed books need no download
+     */
+    public void stagePdf(SpooledUpload upload, Long bookId) throws IOException {
+        upload.moveTo(stagedPdf(bookId));
+    }
+
+    /**
+     * Keep a copy of a local PDF for the job (bulk import into remote storage)
+     */
+    public void stagePdf(Path pdf, Long bookId) throws IOException {
+        Files.copy(pdf, stagedPdf(bookId), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Queue thumbnail generation for a book whose status is already PENDING
+     */
+    public void submit(Long bookId) {
+        if (!inFlight.add(bookId)) {
+            return;
+        }
+        dispatch(bookId);
+    }
+
+    /**
+     * Pick up PENDING jobs that did not fit in the queue, or were interrupted by a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${thumbnail.jobs.sweep-interval-ms:30000}", initialDelayString = "${thumbnail.jobs.sweep-interval-ms:30000}")
+    public void sweep() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<Book> waiting = bookRepository.findByThumbnailStatusInOrderByIdAsc(
+                List.of(ThumbnailStatus.PENDING, ThumbnailStatus.PROCESSING),
+                PageRequest.of(0, room + inFlight.size()));
+        for (Book book : waiting) {
+            if (executor.getQueue().remainingCapacity() == 0) {
+                // More waiting than fits: continue when the queue drains
+                backlog.set(true);
+                break;
+            }
+            submit(book.getId());
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getActiveWorkers() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Milliseconds since a worker last finished a job attempt, successful or not
+     */
+    public long getMillisSinceLastAttempt() {
+        return System.currentTimeMillis() - lastAttemptEndedAt;
+    }
+
+    /**
+     * Directory staged PDFs are kept in until their job finishes
+     */
+    public Path getWorkDir() {
+        return Paths.get(workDir);
+    }
+
+    private void dispatch(Long bookId) {
+        try {
+            executor.execute(() -> run(bookId));
+        } catch (RejectedExecutionException e) {
+            // Queue full: the book stays PENDING in the database for the next sweep
+            inFlight.remove(bookId);
+            backlog.set(true);
+        }
+    }
+
+    private void run(Long bookId) {
+        try {
+            attempt(bookId);
+        } finally {
+            lastAttemptEndedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void attempt(Long bookId) {
+        Book book = bookRepository.findById(bookId).orElse(null);
+        if (book == null) {
+            // Book was deleted while waiting
+            finish(bookId);
+            return;
+        }
+
+        int attempts = book.getThumbnailAttempts() != null ? book.getThumbnailAttempts() : 0;
+        bookRepository.updateThumbnailStatus(bookId, ThumbnailStatus.PROCESSING, attempts);
+
+        try {
+            String thumbnailPath = generate(book);
+            if (thumbnailPath == null) {
+                throw new IOException("Thumbnail generation returned no result");
+            }
+
+            bookRepository.updateThumbnail(bookId, thumbnailPath, ThumbnailStatus.READY, LocalDateTime.now());
+            discardPrevious(book.getThumbnailPath(), thumbnailPath);
+            meterRegistry.counter("thumbnail.jobs.completed", "outcome", "ready").increment();
+            bookRepository.findById(bookId).ifPresent(updated -> eventPublisher.publishEvent(
+                    new BookChangedEvent(bookId, BookChangedEvent.Type.THUMBNAIL, updated)));
+            finish(bookId);
+        } catch (Exception e) {
+            attempts++;
+            System.err.println("Thumbnail job failed for book " + bookId
+                    + " (attempt " + attempts + "/" + maxAttempts + "): " + e.getMessage());
+
+            if (attempts >= maxAttempts) {
+                bookRepository.updateThumbnailStatus(bookId, ThumbnailStatus.FAILED, attempts);
+                meterRegistry.counter("thumbnail.jobs.completed", "outcome", "failed").increment();
+                eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.THUMBNAIL, null));
+                finish(bookId);
+            } else {
+                bookRepository.updateThumbnailStatus(bookId, ThumbnailStatus.PENDING, attempts);
+                meterRegistry.counter("thumbnail.jobs.completed", "outcome", "retry").increment();
+                long delay = backoffMs << Math.min(attempts - 1, 10);
+                retryScheduler.schedule(() -> dispatch(bookId), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private String generate(Book book) throws IOException {
+        try (PdfSourceService.PdfSource source = pdfSourceService.open(book, stagedPdf(book.getId()))) {
+            String pdfPath = source.getPath().toString();
+
+            // Remote (Drive) books get their thumbnail stored next to the PDF, including
+            // uploads still waiting in the local store to be moved there
+            StorageBackend storage = storageService.forLocator(book.getBookPath());
+            if (storageService.awaitsOffload(book.getBookPath())) {
+                storage = storageService.getActive();
+            }
+            if (storage.localPath(book.getBookPath()) == null) {
+                String thumbnailFileName = "book_" + book.getId() + "_" + System.currentTimeMillis() + "_thumb.jpg";
+                return thumbnailService.generateThumbnail(pdfPath, thumbnailFileName, storage);
+            }
+            return thumbnailService.generateThumbnail(pdfPath, book.getId());
+        }
+    }
+
+    /**
+     * Delete the thumbnail a regeneration replaced, unless it is the same file (local
+     * thumbnails are rewritten in place) or a duplicate upload still points at it. Drive
+     * thumbnails get a new file name per regeneration, so the old file is deleted on Drive.
+     * Package-private for tests.
+     */
+    void discardPrevious(String previous, String current) {
+        if (previous == null || previous.isEmpty() || previous.equals("NULL") || previous.equals(current)) {
+            return;
+        }
+        if (bookRepository.countByThumbnailPath(previous) > 0) {
+            return;
+        }
+        thumbnailService.deleteThumbnail(previous);
+    }
+
+    private void finish(Long bookId) {
+        inFlight.remove(bookId);
+        // Refill from the database at half capacity instead of waiting for the next sweep
+        if (backlog.get() && executor.getQueue().size() <= queueCapacity / 2 && backlog.compareAndSet(true, false)) {
+            try {
+                retryScheduler.execute(this::sweep);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+        try {
+            Files.deleteIfExists(stagedPdf(bookId));
+        } catch (IOException e) {
+            System.err.println("Failed to delete staged PDF for book " + bookId + ": " + e.getMessage());
+        }
+    }
+
+    private Path stagedPdf(Long bookId) {
+        return Paths.get(workDir, "book_" + bookId + ".pdf");
+    }
+}
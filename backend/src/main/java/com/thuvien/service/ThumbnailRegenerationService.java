@@ -0,0 +1,528 @@
+package com.thuvien.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thuvien.dto.RegenerationProgress;
+import com.thuvien.dto.RegenerationScope;
+import com.thuvien.entity.Book;
+import com.thuvien.entity.ThumbnailStatus;
+import com.thuvien.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch thumbnail regeneration across the whole catalogue.
+ *
+ * A job scans the books table by id in keyset chunks, picks the books whose thumbnail is
+ * missing or stale (see {@link RegenerationScope}) and puts them back on the persistent
+ * thumbnail queue, where {@link ThumbnailJobService} renders them with its usual worker
+ * pool, retries and Drive handling. The job throttles itself: it keeps at most
+ * {@code max-in-flight} of its books in the queue (half the worker pool by default, so new
+ * uploads still get through), submits at most {@code max-per-second}, and pauses while the
+ * Drive circuit breaker is open.
+ *
+ * After every chunk the job's progress, including the id of the last book handled, is
+ * written to a checkpoint file. Cancelling, a failure or a restart leaves a CANCELLED job
+ * that can be resumed from there; books it already queued stay PENDING in the database and
+ * are finished by the thumbnail queue either way.
+ */
+@Service
+public class ThumbnailRegenerationService {
+
+    private static final int MAX_ERRORS = 50;
+    private static final int HISTORY = 20;
+    // How often queued books are checked for completion when no thumbnail event arrives
+    private static final long POLL_MS = 1000;
+    private static final String CHECKPOINT_FILE = "regeneration-checkpoint.json";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ThumbnailJobService thumbnailJobService;
+
+    @Autowired
+    private DriveGuard driveGuard;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thumbnail.regeneration.chunk-size:200}")
+    private int chunkSize;
+
+    // 0 = half the thumbnail worker pool
+    @Value("${thumbnail.regeneration.max-in-flight:0}")
+    private int maxInFlight;
+
+    // 0 = no rate limit, only max-in-flight
+    @Value("${thumbnail.regeneration.max-per-second:5}")
+    private double maxPerSecond;
+
+    private ExecutorService coordinator;
+    private Path checkpointFile;
+
+    private final Map<String, RegenerationJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @PostConstruct
+    public void start() {
+        if (maxInFlight <= 0) {
+            maxInFlight = Math.max(1, thumbnailJobService.getPoolSize() / 2);
+        }
+        coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-regeneration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointFile = thumbnailJobService.getWorkDir().resolve(CHECKPOINT_FILE);
+        restoreCheckpoint();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Running jobs stop at the next book and write their checkpoint
+        jobs.values().forEach(job -> job.cancelled = true);
+        coordinator.shutdown();
+        if (!coordinator.awaitTermination(5, TimeUnit.SECONDS)) {
+            coordinator.shutdownNow();
+        }
+    }
+
+    /**
+     * Start a job over the books with id above {@code startAfterId}
+     * @throws IllegalStateException if another job is queued or running
+     */
+    public RegenerationProgress start(RegenerationScope scope, long startAfterId) {
+        return submit(new RegenerationJob(scope, startAfterId));
+    }
+
+    /**
+     * Start a new job with the same scope that continues after the last book the job handled
+     */
+    public Optional<RegenerationProgress> resume(String id) {
+        RegenerationJob previous = jobs.get(id);
+        if (previous == null) {
+            return Optional.empty();
+        }
+        if (previous.isActive()) {
+            throw new IllegalStateException("Regeneration " + id + " is still running");
+        }
+        return Optional.of(submit(new RegenerationJob(previous.scope, previous.cursor)));
+    }
+
+    /**
+     * Stop a job after the current book; books already queued are still regenerated
+     */
+    public Optional<RegenerationProgress> cancel(String id) {
+        RegenerationJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.finishedAt == null) {
+            job.cancelled = true;
+        }
+        return Optional.of(job.toProgress());
+    }
+
+    public Optional<RegenerationProgress> getProgress(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(RegenerationJob::toProgress);
+    }
+
+    public List<RegenerationProgress> getJobs() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(RegenerationJob::toProgress).toList();
+        }
+    }
+
+    /**
+     * Wake the job when one of its books' thumbnail jobs ends; the database stays the source
+     * of truth, the event only saves waiting for the next poll
+     */
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() != BookChangedEvent.Type.THUMBNAIL) {
+            return;
+        }
+        if (event.book() != null && event.book().getThumbnailStatus() != ThumbnailStatus.READY) {
+            // Our own requeue (PENDING)
+            return;
+        }
+        synchronized (jobs) {
+            for (RegenerationJob job : jobs.values()) {
+                if (job.outstanding.containsKey(event.bookId())) {
+                    job.completions.release();
+                }
+            }
+        }
+    }
+
+    private RegenerationProgress submit(RegenerationJob job) {
+        synchronized (jobs) {
+            for (RegenerationJob other : jobs.values()) {
+                if (other.isActive()) {
+                    throw new IllegalStateException("Regeneration " + other.id + " is already running");
+                }
+            }
+            jobs.put(job.id, job);
+            evictHistory();
+        }
+        coordinator.execute(() -> run(job));
+        return job.toProgress();
+    }
+
+    private void run(RegenerationJob job) {
+        job.startedAt = LocalDateTime.now();
+        job.startedNanos = System.nanoTime();
+        job.status = "RUNNING";
+
+        try {
+            job.total = bookRepository.countByIdGreaterThan(job.startAfterId);
+            System.out.println("Thumbnail regeneration " + job.id + " started: scope " + job.scope
+                    + ", " + job.total + " books after id " + job.startAfterId);
+
+            scan:
+            while (!job.cancelled) {
+                List<Book> chunk = bookRepository.findByIdGreaterThanOrderByIdAsc(job.cursor, PageRequest.of(0, chunkSize));
+                for (Book book : chunk) {
+                    if (job.cancelled) {
+                        break scan;
+                    }
+                    if (needsThumbnail(book, job.scope)) {
+                        if (!awaitCapacity(job)) {
+                            break scan;
+                        }
+                        throttle(job);
+                        // Tracked before queueing, so a fast thumbnail job's event is not missed
+                        job.outstanding.put(book.getId(), book.getName());
+                        if (bookService.requeueThumbnail(book)) {
+                            job.selected.incrementAndGet();
+                            meterRegistry.counter("thumbnail.regeneration.books", "outcome", "queued").increment();
+                        } else {
+                            job.outstanding.remove(book.getId());
+                        }
+                    }
+                    job.scanned.incrementAndGet();
+                    job.cursor = book.getId();
+                }
+                checkpoint(job);
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            // Wait for the queued books, unless cancelled (the thumbnail queue finishes them anyway)
+            while (!job.cancelled && !job.outstanding.isEmpty()) {
+                awaitCompletion(job);
+                poll(job);
+            }
+            job.status = job.cancelled ? "CANCELLED" : "COMPLETED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "CANCELLED";
+        } catch (Exception e) {
+            job.error("Regeneration failed: " + e.getMessage());
+            job.status = "FAILED";
+        } finally {
+            job.finishedNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            checkpoint(job);
+            System.out.println("Thumbnail regeneration " + job.id + " " + job.status.toLowerCase(Locale.ROOT)
+                    + ": " + job.scanned + " scanned, " + job.regenerated + " regenerated, "
+                    + job.failed + " failed, " + job.outstanding.size() + " still queued");
+        }
+    }
+
+    /**
+     * Whether the book's thumbnail should be regenerated; books already in the queue are left alone.
+     * Drive thumbnails are only regenerated by ALL: checking them would cost a request each.
+     */
+    private boolean needsThumbnail(Book book, RegenerationScope scope) {
+        if (book.getBookPath() == null || book.getBookPath().isEmpty()) {
+            return false;
+        }
+        ThumbnailStatus status = book.getThumbnailStatus();
+        if (status == ThumbnailStatus.PENDING || status == ThumbnailStatus.PROCESSING) {
+            return false;
+        }
+        if (scope == RegenerationScope.ALL) {
+            return true;
+        }
+
+        String thumbnailPath = book.getThumbnailPath();
+        if (thumbnailPath == null || thumbnailPath.isBlank() || thumbnailPath.equals("NULL")
+                || status == ThumbnailStatus.FAILED) {
+            return true;
+        }
+        if (thumbnailPath.startsWith("http")) {
+            return false;
+        }
+        try {
+            Path file = Paths.get(thumbnailPath);
+            if (!Files.isRegularFile(file)) {
+                return true;
+            }
+            return scope == RegenerationScope.STALE && thumbnailService.isUndersized(file);
+        } catch (InvalidPathException | IOException e) {
+            // Unusable path or unreadable image
+            return true;
+        }
+    }
+
+    /**
+     * Wait until fewer than max-in-flight of the job's books are queued and Drive is not
+     * failing fast
+     * @return false if the job was cancelled while waiting
+     */
+    private boolean awaitCapacity(RegenerationJob job) throws InterruptedException {
+        boolean paused = false;
+        boolean due = System.nanoTime() - job.lastPollNanos >= TimeUnit.MILLISECONDS.toNanos(POLL_MS);
+        while (!job.cancelled) {
+            if (due || job.completions.availablePermits() > 0) {
+                poll(job);
+            }
+            boolean driveDown = driveGuard.getCircuitState().equals("open");
+            if (job.outstanding.size() < maxInFlight && !driveDown) {
+                return true;
+            }
+            if (driveDown && !paused) {
+                paused = true;
+                System.out.println("Thumbnail regeneration " + job.id + " paused while Google Drive is unavailable");
+            }
+            if (driveDown) {
+                Thread.sleep(POLL_MS);
+            } else {
+                awaitCompletion(job);
+            }
+            due = true;
+        }
+        return false;
+    }
+
+    // Until one of the job's books finishes, or POLL_MS at most (deleted books send no event)
+    private void awaitCompletion(RegenerationJob job) throws InterruptedException {
+        if (job.completions.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)) {
+            job.completions.drainPermits();
+        }
+    }
+
+    // Space submissions at least 1/max-per-second apart
+    private void throttle(RegenerationJob job) throws InterruptedException {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long wait = job.nextSubmitNanos - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        job.nextSubmitNanos = Math.max(now, job.nextSubmitNanos) + (long) (1e9 / maxPerSecond);
+    }
+
+    /**
+     * Count the job's queued books that have finished, from their status in the database
+     */
+    private void poll(RegenerationJob job) {
+        job.lastPollNanos = System.nanoTime();
+        if (job.outstanding.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(job.outstanding.keySet());
+        for (Book book : bookRepository.findAllById(job.outstanding.keySet())) {
+            missing.remove(book.getId());
+            if (book.getThumbnailStatus() == ThumbnailStatus.READY) {
+                job.outstanding.remove(book.getId());
+                job.regenerated.incrementAndGet();
+                meterRegistry.counter("thumbnail.regeneration.books", "outcome", "regenerated").increment();
+            } else if (book.getThumbnailStatus() == ThumbnailStatus.FAILED) {
+                job.outstanding.remove(book.getId());
+                job.failed.incrementAndGet();
+                meterRegistry.counter("thumbnail.regeneration.books", "outcome", "failed").increment();
+                job.error("Book " + book.getId() + " (" + book.getName() + "): thumbnail generation failed after "
+                        + book.getThumbnailAttempts() + " attempts");
+            }
+        }
+        // Deleted while queued
+        missing.forEach(job.outstanding::remove);
+    }
+
+    /**
+     * Write the job's progress atomically; it is what a resume after a restart starts from
+     */
+    private void checkpoint(RegenerationJob job) {
+        try {
+            Path temp = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".part");
+            objectMapper.writeValue(temp.toFile(), job.toProgress());
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write thumbnail regeneration checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bring back the last job from before a restart, so it can be resumed
+     */
+    private void restoreCheckpoint() {
+        if (!Files.isRegularFile(checkpointFile)) {
+            return;
+        }
+        try {
+            RegenerationProgress saved = objectMapper.readValue(checkpointFile.toFile(), RegenerationProgress.class);
+            RegenerationJob job = RegenerationJob.restore(saved);
+            jobs.put(job.id, job);
+            System.out.println("Thumbnail regeneration " + job.id + " restored (" + job.status.toLowerCase(Locale.ROOT)
+                    + " at book id " + job.cursor + ")");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable thumbnail regeneration checkpoint: " + e.getMessage());
+        }
+    }
+
+    private void evictHistory() {
+        Iterator<RegenerationJob> iterator = jobs.values().iterator();
+        int excess = jobs.size() - HISTORY;
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().finishedAt != null) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    private static class RegenerationJob {
+
+        final String id;
+        final RegenerationScope scope;
+        final long startAfterId;
+
+        volatile String status = "QUEUED";
+        volatile boolean cancelled;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile long startedNanos;
+        volatile long finishedNanos;
+        volatile long total;
+        volatile long cursor;
+        // Used by the coordinator thread only
+        long nextSubmitNanos;
+        long lastPollNanos;
+
+        final AtomicInteger scanned = new AtomicInteger();
+        final AtomicInteger selected = new AtomicInteger();
+        final AtomicInteger regenerated = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        // Queued books not finished yet: id -> name
+        final Map<Long, String> outstanding = new ConcurrentHashMap<>();
+        // Released by thumbnail events for outstanding books
+        final Semaphore completions = new Semaphore(0);
+
+        private final ArrayDeque<String> errors = new ArrayDeque<>();
+
+        RegenerationJob(RegenerationScope scope, long startAfterId) {
+            this(UUID.randomUUID().toString().substring(0, 8), scope, startAfterId);
+        }
+
+        private RegenerationJob(String id, RegenerationScope scope, long startAfterId) {
+            this.id = id;
+            this.scope = scope;
+            this.startAfterId = startAfterId;
+            this.cursor = startAfterId;
+        }
+
+        /**
+         * A finished job from a checkpoint; one that was still running when the app stopped is CANCELLED
+         */
+        static RegenerationJob restore(RegenerationProgress saved) {
+            RegenerationJob job = new RegenerationJob(saved.id(), saved.scope(), saved.startAfterId());
+            job.cursor = saved.cursor();
+            job.total = saved.total();
+            job.scanned.set(saved.scanned());
+            job.selected.set(saved.selected());
+            job.regenerated.set(saved.regenerated());
+            job.failed.set(saved.failed());
+            job.status = saved.status().equals("QUEUED") || saved.status().equals("RUNNING") ? "CANCELLED" : saved.status();
+            job.startedAt = saved.startedAt();
+            job.finishedAt = saved.finishedAt() != null ? saved.finishedAt() : LocalDateTime.now();
+            if (job.startedAt != null) {
+                // Keeps the reported rate: only the difference between the two matters
+                job.finishedNanos = Duration.between(job.startedAt, job.finishedAt).toNanos();
+            }
+            job.errors.addAll(saved.errors());
+            return job;
+        }
+
+        boolean isActive() {
+            return status.equals("QUEUED") || status.equals("RUNNING");
+        }
+
+        synchronized void error(String message) {
+            System.err.println("Thumbnail regeneration " + id + ": " + message);
+            if (errors.size() == MAX_ERRORS) {
+                errors.removeFirst();
+            }
+            errors.addLast(message);
+        }
+
+        RegenerationProgress toProgress() {
+            int done = regenerated.get() + failed.get();
+            int pending = outstanding.size();
+            double rate = 0;
+            Long eta = null;
+            if (startedAt != null) {
+                long end = finishedAt != null ? finishedNanos : System.nanoTime();
+                double seconds = (end - startedNanos) / 1e9;
+                rate = seconds > 0 ? done / seconds : 0;
+                int seen = scanned.get();
+                if (finishedAt == null && rate > 0 && seen > 0) {
+                    // Books still to scan are expected to need a thumbnail as often as those scanned so far
+                    double remaining = pending + (double) Math.max(0, total - seen) * selected.get() / seen;
+                    eta = Math.round(remaining / rate);
+                }
+            }
+            List<String> recentErrors;
+            synchronized (this) {
+                recentErrors = List.copyOf(errors);
+            }
+            return new RegenerationProgress(id, scope, status, startAfterId, cursor, total, scanned.get(),
+                    selected.get(), regenerated.get(), failed.get(), pending, Math.round(rate * 10) / 10.0, eta,
+                    startedAt, finishedAt, recentErrors);
+        }
+    }
+}
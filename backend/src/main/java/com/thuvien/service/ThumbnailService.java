@@ -1,28 +1,103 @@
 package com.thuvien.service;
 
+import com.thuvien.storage.StorageBackend;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ThumbnailService {
 
     private static final String THUMBNAIL_DIR = "D:\\thumbnails";
-    private static final int THUMBNAIL_WIDTH = 300;
+    // Widths served by ThumbnailController; the stored thumbnail is rendered once at the largest
+    public static final int[] RENDITION_WIDTHS = {120, 300, 600};
+    public static final int DEFAULT_RENDITION_WIDTH = 300;
+    private static final int THUMBNAIL_WIDTH = RENDITION_WIDTHS[RENDITION_WIDTHS.length - 1];
     private static final float DPI = 150;
 
+    // Render at this multiple of the target width, then downscale for anti-aliasing
+    private static final float OVERSAMPLE = 2f;
+
+    // Bounded mode: render at the target size with PDFBox buffers spilling to temp files
+    @Value("${thumbnail.render.memory-bounded:true}")
+    private boolean memoryBounded;
+
+    @Value("${thumbnail.render.max-main-memory-mb:16}")
+    private long maxMainMemoryMb;
+
+    // The stored thumbnail is the source of every rendition, so it keeps more detail
+    @Value("${thumbnail.master-quality:0.9}")
+    private float masterQuality;
+
+    @Value("${thumbnail.renditions.jpeg-quality:0.8}")
+    private float renditionQuality;
+
+    // 600px renditions are shown on high-DPI screens, where artefacts are less visible
+    @Value("${thumbnail.renditions.hidpi-jpeg-quality:0.7}")
+    private float hidpiRenditionQuality;
+
+    @Value("${thumbnail.renditions.webp-quality:0.75}")
+    private float webpQuality;
+
+    // CPU-bound rendering done for virtual threads runs on this many platform threads (0 = one per core)
+    @Value("${pdf.render.workers:0}")
+    private int renderWorkers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImageResampler imageResampler;
+
+    @Autowired
+    private StorageService storageService;
+
+    private Timer renderTimer;
+    private DistributionSummary renderPixels;
+    private ThreadPoolExecutor renderPool;
+    private volatile byte[] placeholder;
+
     public ThumbnailService() {
         // Create thumbnail directory if not exists
         try {
@@ -32,10 +107,46 @@ public class ThumbnailService {
         }
     }
 
+    @PostConstruct
+    public void init() {
+        // Register ImageIO writers shipped as jars (webp-imageio), also inside the packaged boot jar
+        ImageIO.scanForPlugins();
+        System.out.println("WebP encoding " + (canEncode("webp") ? "available" : "unavailable, serving JPEG"));
+
+        String mode = memoryBounded ? "bounded" : "legacy";
+        renderTimer = Timer.builder("pdf.render")
+                .description("Rendering one PDF page, including the resize to the target width")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        renderPixels = DistributionSummary.builder("pdf.render.pixels")
+                .description("Size of the raster PDFBox rendered before resizing")
+                .tag("mode", mode)
+                .register(meterRegistry);
+
+        int poolSize = renderWorkers > 0 ? renderWorkers : Runtime.getRuntime().availableProcessors();
+        renderPool = new ThreadPoolExecutor(poolSize, poolSize, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), ThreadSupport.platformThreadFactory("pdf-render-"));
+        renderPool.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(renderPool, "pdf-render", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * Renders waiting for a thread of the render pool
+     */
+    public int getRenderQueueDepth() {
+        return renderPool.getQueue().size();
+    }
+
     /**
-     * Generate thumbnail from PDF and upload to Google Drive (OAuth version)
+     * Generate thumbnail from PDF and store it in a storage backend (e.g. Google Drive)
+     * @return Locator of the stored thumbnail, or null if failed
      */
-    public String generateThumbnailToDrive(String pdfPath, String thumbnailFileName, GoogleDriveOAuthService driveService) {
+    public String generateThumbnail(String pdfPath, String thumbnailFileName, StorageBackend storage) {
         if (pdfPath == null || pdfPath.trim().isEmpty()) {
             return null;
         }
@@ -46,48 +157,45 @@ public class ThumbnailService {
             return null;
         }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            if (document.getNumberOfPages() == 0) {
+        Path tempThumb = null;
+        try {
+            BufferedImage thumbnail = renderFirstPage(pdfFile, THUMBNAIL_WIDTH);
+            if (thumbnail == null) {
                 System.err.println("PDF has no pages: " + pdfPath);
                 return null;
             }
 
-            // Render first page
-            PDFRenderer renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, DPI);
-            
-            // Resize to thumbnail size
-            BufferedImage thumbnail = resizeImage(image, THUMBNAIL_WIDTH);
-            
-            // Release image memory
-            image.flush();
-
             // Save to temp file
-            Path tempThumb = Files.createTempFile("thumb-", ".jpg");
-            ImageIO.write(thumbnail, "jpg", tempThumb.toFile());
+            tempThumb = Files.createTempFile("thumb-", ".jpg");
+            Files.write(tempThumb, encode(thumbnail, "jpeg", masterQuality));
             
             // Release thumbnail memory
             thumbnail.flush();
 
-            // Upload to Google Drive
-            String driveUrl = driveService.uploadFile(tempThumb.toFile(), thumbnailFileName);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempThumb);
+            return storage.putOwned(tempThumb, thumbnailFileName, "image/jpeg", null);
 
-            return driveUrl;
-
-        } catch (IOException | GeneralSecurityException e) {
+        } catch (IOException e) {
             System.err.println("Failed to generate thumbnail for: " + pdfPath);
             e.printStackTrace();
             return null;
+        } finally {
+            if (tempThumb != null) {
+                try {
+                    Files.deleteIfExists(tempThumb);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete temp thumbnail: " + tempThumb);
+                }
+            }
         }
     }
 
     /**
-     * Generate thumbnail from PDF and upload to Google Drive
+     * Generate thumbnail from PDF first page
+     * @param pdfPath Full path to PDF file
+     * @param bookId Book ID for thumbnail filename
+     * @return Path to generated thumbnail, or null if failed
      */
-    public String generateThumbnailToDrive(String pdfPath, String thumbnailFileName, GoogleDriveService driveService) {
+    public String generateThumbnail(String pdfPath, Long bookId) {
         if (pdfPath == null || pdfPath.trim().isEmpty()) {
             return null;
         }
@@ -98,38 +206,22 @@ public class ThumbnailService {
             return null;
         }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            if (document.getNumberOfPages() == 0) {
+        try {
+            BufferedImage thumbnail = renderFirstPage(pdfFile, THUMBNAIL_WIDTH);
+            if (thumbnail == null) {
                 System.err.println("PDF has no pages: " + pdfPath);
                 return null;
             }
 
-            // Render first page
-            PDFRenderer renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, DPI);
-            
-            // Resize to thumbnail size
-            BufferedImage thumbnail = resizeImage(image, THUMBNAIL_WIDTH);
-            
-            // Release image memory
-            image.flush();
-
-            // Save to temp file
-            Path tempThumb = Files.createTempFile("thumb-", ".jpg");
-            ImageIO.write(thumbnail, "jpg", tempThumb.toFile());
-            
-            // Release thumbnail memory
+            // Save thumbnail
+            String thumbnailFileName = "book_" + bookId + ".jpg";
+            Path thumbnailPath = Paths.get(THUMBNAIL_DIR, thumbnailFileName);
+            Files.write(thumbnailPath, encode(thumbnail, "jpeg", masterQuality));
             thumbnail.flush();
 
-            // Upload to Google Drive
-            String driveUrl = driveService.uploadFile(tempThumb.toFile(), thumbnailFileName);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempThumb);
-
-            return driveUrl;
+            return thumbnailPath.toString();
 
-        } catch (IOException | GeneralSecurityException e) {
+        } catch (IOException e) {
             System.err.println("Failed to generate thumbnail for: " + pdfPath);
             e.printStackTrace();
             return null;
@@ -137,76 +229,268 @@ public class ThumbnailService {
     }
 
     /**
-     * Generate thumbnail from PDF first page
-     * @param pdfPath Full path to PDF file
-     * @param bookId Book ID for thumbnail filename
-     * @return Path to generated thumbnail, or null if failed
+     * Render the first page of a PDF at the given width
+     * @return Rendered image, or null if the PDF has no pages
      */
-    public String generateThumbnail(String pdfPath, Long bookId) {
-        if (pdfPath == null || pdfPath.trim().isEmpty()) {
-            return null;
+    BufferedImage renderFirstPage(File pdfFile, int targetWidth) throws IOException {
+        try (PDDocument document = openDocument(pdfFile)) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            return renderPage(document, 0, targetWidth);
         }
+    }
 
-        File pdfFile = new File(pdfPath);
-        if (!pdfFile.exists()) {
-            System.err.println("PDF file not found: " + pdfPath);
-            return null;
+    /**
+     * Smallest rendition width that covers the requested width; the default when none is given
+     */
+    public static int snapRenditionWidth(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_RENDITION_WIDTH;
         }
+        for (int width : RENDITION_WIDTHS) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return RENDITION_WIDTHS[RENDITION_WIDTHS.length - 1];
+    }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            if (document.getNumberOfPages() == 0) {
-                System.err.println("PDF has no pages: " + pdfPath);
-                return null;
+    /**
+     * Derive one rendition from the stored thumbnail: decode, downscale (never upscale) and
+     * encode. No PDF is opened, so every size comes from the single render of the first page.
+     * @param master Encoded stored thumbnail
+     * @param format "jpeg" or "webp"
+     */
+    public byte[] rendition(byte[] master, int width, String format) throws IOException {
+        return cpuBound(() -> {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(master));
+            if (image == null) {
+                throw new IOException("Unreadable thumbnail image");
+            }
+            BufferedImage scaled = downscale(image, width);
+            try {
+                float quality = format.equals("webp") ? webpQuality
+                        : scaled.getWidth() >= RENDITION_WIDTHS[RENDITION_WIDTHS.length - 1] ? hidpiRenditionQuality
+                        : renditionQuality;
+                return encodeImage(scaled, format, quality);
+            } finally {
+                scaled.flush();
+                image.flush();
             }
+        });
+    }
 
-            // Render first page
-            PDFRenderer renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, DPI);
+    /**
+     * Plain book-cover placeholder served while a thumbnail cannot be fetched
+     */
+    public byte[] getPlaceholder() throws IOException {
+        byte[] bytes = placeholder;
+        if (bytes == null) {
+            int height = DEFAULT_RENDITION_WIDTH * 4 / 3;
+            BufferedImage image = new BufferedImage(DEFAULT_RENDITION_WIDTH, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setColor(new Color(0xE5E7EB));
+                graphics.fillRect(0, 0, DEFAULT_RENDITION_WIDTH, height);
+                graphics.setColor(new Color(0x9CA3AF));
+                graphics.setStroke(new BasicStroke(4));
+                graphics.drawRect(DEFAULT_RENDITION_WIDTH / 6, height / 6, DEFAULT_RENDITION_WIDTH * 2 / 3, height * 2 / 3);
+            } finally {
+                graphics.dispose();
+            }
+            bytes = encodeImage(image, "jpeg", 0.8f);
+            placeholder = bytes;
+        }
+        return bytes;
+    }
 
-            // Resize to thumbnail size
-            BufferedImage thumbnail = resizeImage(image, THUMBNAIL_WIDTH);
+    /**
+     * Whether a stored thumbnail is narrower than the master width, i.e. was rendered before
+     * the larger renditions existed. Only the image header is read.
+     * @throws IOException if the file is not a readable image
+     */
+    public boolean isUndersized(Path thumbnail) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(thumbnail.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Not an image: " + thumbnail);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return reader.getWidth(0) < THUMBNAIL_WIDTH;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 
-            // Save thumbnail
-            String thumbnailFileName = "book_" + bookId + ".jpg";
-            Path thumbnailPath = Paths.get(THUMBNAIL_DIR, thumbnailFileName);
-            ImageIO.write(thumbnail, "jpg", thumbnailPath.toFile());
+    /**
+     * Directory local thumbnails are written to
+     */
+    public Path getThumbnailDir() {
+        return Paths.get(THUMBNAIL_DIR);
+    }
 
-            return thumbnailPath.toString();
+    /**
+     * Open a PDF for rendering, honouring the memory-bounded mode
+     */
+    public PDDocument openDocument(File pdfFile) throws IOException {
+        if (!memoryBounded) {
+            return Loader.loadPDF(pdfFile);
+        }
+        // Parsed streams beyond the main-memory budget spill to temp files
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(maxMainMemoryMb * 1024 * 1024);
+        return Loader.loadPDF(pdfFile, memory.streamCache);
+    }
 
-        } catch (IOException e) {
-            System.err.println("Failed to generate thumbnail for: " + pdfPath);
-            e.printStackTrace();
-            return null;
+    /**
+     * Render one page (0-based) of an open document at the given width
+     */
+    public BufferedImage renderPage(PDDocument document, int pageIndex, int targetWidth) throws IOException {
+        return cpuBound(() -> render(document, pageIndex, targetWidth));
+    }
+
+    private BufferedImage render(PDDocument document, int pageIndex, int targetWidth) throws IOException {
+        long start = System.nanoTime();
+        PDFRenderer renderer = new PDFRenderer(document);
+
+        if (!memoryBounded) {
+            BufferedImage image = renderer.renderImageWithDPI(pageIndex, DPI);
+            BufferedImage resized = imageResampler.resizeToWidth(image, targetWidth);
+            recordRender(image, start);
+            image.flush();
+            return resized;
+        }
+
+        PDPage page = document.getPage(pageIndex);
+        PDRectangle cropBox = page.getCropBox();
+        int rotation = page.getRotation();
+        float pageWidth = (rotation == 90 || rotation == 270) ? cropBox.getHeight() : cropBox.getWidth();
+
+        // Render at the target width, oversampled for anti-aliasing as long as that stays under 150 DPI
+        float exactScale = targetWidth / pageWidth;
+        float scale = Math.max(exactScale, Math.min(exactScale * OVERSAMPLE, DPI / 72f));
+
+        // Large embedded images are subsampled while decoding instead of loaded at full resolution
+        renderer.setSubsamplingAllowed(true);
+        BufferedImage image = renderer.renderImage(pageIndex, scale, ImageType.RGB);
+
+        BufferedImage result = downscale(image, targetWidth);
+        recordRender(image, start);
+        if (result != image) {
+            image.flush();
         }
+        return result;
+    }
+
+    private void recordRender(BufferedImage rendered, long startNanos) {
+        renderTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        renderPixels.record((double) rendered.getWidth() * rendered.getHeight());
     }
 
     /**
-     * Resize image maintaining aspect ratio
+     * Whether an ImageIO writer is installed for the format ("jpeg", "webp")
      */
-    private BufferedImage resizeImage(BufferedImage originalImage, int targetWidth) {
-        int originalWidth = originalImage.getWidth();
-        int originalHeight = originalImage.getHeight();
-        
-        int targetHeight = (int) ((double) originalHeight / originalWidth * targetWidth);
-        
-        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        resizedImage.getGraphics().drawImage(
-            originalImage.getScaledInstance(targetWidth, targetHeight, java.awt.Image.SCALE_SMOOTH),
-            0, 0, null
-        );
-        
-        return resizedImage;
+    public static boolean canEncode(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * Encode an image with the given lossy quality (0..1)
+     */
+    public byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        return cpuBound(() -> encodeImage(image, format, quality));
+    }
+
+    private byte[] encodeImage(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format: " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes().length > 0) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            // Progressive JPEGs are usually smaller and show a full preview early
+            if (param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Run CPU-bound work on the bounded render pool when called from a virtual thread, so
+     * thousands of virtual request threads cannot all render at once. Platform callers
+     * (thumbnail and prefetch workers, already bounded) run it directly.
+     */
+    private <T> T cpuBound(Callable<T> work) throws IOException {
+        if (!ThreadSupport.isVirtualThread()) {
+            try {
+                return work.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        Future<T> result = renderPool.submit(work);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the render pool");
+        }
+    }
+
+    /**
+     * Downscale to the target width keeping the aspect ratio; images already at or below
+     * the target width are returned as they are
+     */
+    BufferedImage downscale(BufferedImage image, int targetWidth) {
+        if (image.getWidth() <= targetWidth) {
+            return image;
+        }
+        return imageResampler.resizeToWidth(image, targetWidth);
     }
 
     /**
-     * Delete thumbnail file
+     * Delete a thumbnail from wherever it is stored: a local file or a Drive file
      */
     public void deleteThumbnail(String thumbnailPath) {
-        if (thumbnailPath != null && !thumbnailPath.isEmpty()) {
+        if (thumbnailPath != null && !thumbnailPath.isEmpty() && !thumbnailPath.equals("NULL")) {
             try {
-                Files.deleteIfExists(Paths.get(thumbnailPath));
-            } catch (IOException e) {
-                System.err.println("Failed to delete thumbnail: " + thumbnailPath);
+                storageService.forLocator(thumbnailPath).delete(thumbnailPath);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Failed to delete thumbnail: " + thumbnailPath + " (" + e.getMessage() + ")");
             }
         }
     }
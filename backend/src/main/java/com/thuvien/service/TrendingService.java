@@ -0,0 +1,276 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory leaderboard of the most viewed books.
+ *
+ * Holds at most {@code capacity} books in a skip list ordered by (views DESC, id DESC),
+ * the same order as the idx_views_id index it is seeded from. Reads walk the head of the
+ * skip list and never touch the database. Views of ranked books are counted as they
+ * happen through {@link BookService}; other books are checked when their views are flushed,
+ * and other changes arrive as {@link BookChangedEvent}s.
+ */
+@Service
+public class TrendingService {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingLong(Entry::views).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    @Value("${books.trending.capacity:100}")
+    private int capacity;
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // Every book outside the leaderboard orders after this entry; null when none is left out
+    private Entry cutoff;
+
+    private record Entry(long id, long views, Book book) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (capacity < 1) {
+            throw new IllegalStateException("books.trending.capacity must be at least 1, got " + capacity);
+        }
+    }
+
+    /**
+     * Seed the leaderboard from the database once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reload();
+    }
+
+    /**
+     * Rebuild the leaderboard from the top rows of idx_views_id
+     */
+    public synchronized void reload() {
+        List<Book> top = bookRepository.findMostViewed(PageRequest.of(0, capacity));
+        ranking.clear();
+        entries.clear();
+        for (Book book : top) {
+            insert(book, storedViews(book) + viewCounterService.getPendingViews(book.getId()));
+        }
+        cutoff = ranking.size() >= capacity ? ranking.last() : null;
+    }
+
+    /**
+     * Top N books by views, highest first. Runs in O(N) over the skip list head.
+     */
+    public List<Book> getTopBooks(int limit) {
+        List<Book> result = new ArrayList<>(Math.min(limit, capacity));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Entry entry = iterator.next();
+            Book book = entry.book();
+            if (storedViews(book) != entry.views()) {
+                // Views counted since the book was loaded; the stored copy is shared
+                book = book.copy();
+                book.setViews(entry.views());
+            }
+            result.add(book);
+        }
+        return result;
+    }
+
+    /**
+     * Record the current state of a book (created, renamed...). Its view count is the stored
+     * one plus views not flushed yet, and never goes below what the leaderboard already has.
+     */
+    public synchronized void update(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Entry existing = entries.get(book.getId());
+        long views = storedViews(book) + viewCounterService.getPendingViews(book.getId());
+        if (existing != null) {
+            views = Math.max(views, existing.views());
+        }
+        place(book, views);
+    }
+
+    /**
+     * Count one view of a book. Only ranked books are moved right away; any other book
+     * is considered when its views are flushed (see {@link #onViewsFlushed}).
+     */
+    public synchronized void recordView(Long bookId) {
+        Entry existing = entries.get(bookId);
+        if (existing != null) {
+            place(existing.book(), existing.views() + 1);
+        }
+    }
+
+    /**
+     * Put a book at the position of its view count, admitting or evicting as needed
+     */
+    private void place(Book book, long views) {
+        Entry existing = entries.get(book.getId());
+
+        if (existing == null) {
+            // Only admit a newcomer if it beats the current last place, or while slots are free,
+            // every book left out so far (otherwise one of those would belong here first)
+            Entry candidate = new Entry(book.getId(), views, book);
+            if (!admits(candidate)) {
+                raiseCutoff(candidate);
+                return;
+            }
+        }
+
+        if (existing != null) {
+            ranking.remove(existing);
+        }
+        insert(book, views);
+
+        while (ranking.size() > capacity) {
+            Entry evicted = ranking.pollLast();
+            if (evicted != null) {
+                entries.remove(evicted.id());
+                raiseCutoff(evicted);
+            }
+        }
+    }
+
+    private boolean admits(Entry candidate) {
+        Entry bound = ranking.size() >= capacity ? ranking.last() : cutoff;
+        return bound == null || ORDER.compare(candidate, bound) < 0;
+    }
+
+    /**
+     * Replace the stored copy of a ranked book (e.g. new thumbnail), keeping its view count
+     */
+    public synchronized void refresh(Book book) {
+        Entry existing = entries.get(book.getId());
+        if (existing == null) {
+            return;
+        }
+        long views = Math.max(storedViews(book), existing.views());
+        Entry entry = new Entry(existing.id(), views, book);
+        ranking.remove(existing);
+        entries.put(entry.id(), entry);
+        ranking.add(entry);
+    }
+
+    /**
+     * Books viewed since the last flush that are not ranked yet may now belong on the
+     * leaderboard. Their totals are read in one query; only books that get in are loaded.
+     */
+    @EventListener
+    public synchronized void onViewsFlushed(ViewsFlushedEvent event) {
+        List<Long> unranked = new ArrayList<>();
+        for (Long id : event.deltas().keySet()) {
+            if (!entries.containsKey(id)) {
+                unranked.add(id);
+            }
+        }
+        if (unranked.isEmpty()) {
+            return;
+        }
+
+        List<Long> admitted = new ArrayList<>();
+        for (Object[] row : bookRepository.findViewsByIdIn(unranked)) {
+            Long id = (Long) row[0];
+            long views = (row[1] != null ? (Long) row[1] : 0L) + viewCounterService.getPendingViews(id);
+            Entry candidate = new Entry(id, views, null);
+            if (admits(candidate)) {
+                admitted.add(id);
+            } else {
+                raiseCutoff(candidate);
+            }
+        }
+        if (!admitted.isEmpty()) {
+            for (Book book : bookRepository.findAllById(admitted)) {
+                update(book);
+            }
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> update(event.book());
+            case THUMBNAIL -> {
+                if (event.book() != null) {
+                    refresh(event.book());
+                }
+            }
+            case DELETED -> remove(event.bookId());
+        }
+    }
+
+    /**
+     * Drop a deleted book. When books were left out, the freed slot is refilled at once with
+     * the next book in the database after the current last place.
+     */
+    public synchronized void remove(Long bookId) {
+        Entry existing = entries.remove(bookId);
+        if (existing != null) {
+            ranking.remove(existing);
+            if (cutoff != null) {
+                refill();
+            }
+        }
+    }
+
+    /**
+     * Fill free slots from idx_views_id, continuing after the last ranked book
+     */
+    private void refill() {
+        if (ranking.isEmpty()) {
+            reload();
+            return;
+        }
+        int free = capacity - ranking.size();
+        Entry last = ranking.last();
+        List<Book> next = bookRepository.findMostViewedAfter(last.views(), last.id(), PageRequest.of(0, free));
+        for (Book book : next) {
+            // A ranked book whose counted views are not flushed yet can still sort after last place in the database
+            if (!entries.containsKey(book.getId())) {
+                insert(book, storedViews(book) + viewCounterService.getPendingViews(book.getId()));
+            }
+        }
+        // Fewer rows than asked for: no book is left out any more
+        cutoff = next.size() < free ? null : ranking.last();
+    }
+
+    private void raiseCutoff(Entry leftOut) {
+        if (cutoff == null || ORDER.compare(leftOut, cutoff) < 0) {
+            cutoff = leftOut;
+        }
+    }
+
+    private static long storedViews(Book book) {
+        return book.getViews() != null ? book.getViews() : 0L;
+    }
+
+    private void insert(Book book, long views) {
+        Entry entry = new Entry(book.getId(), views, book);
+        entries.put(entry.id(), entry);
+        ranking.add(entry);
+    }
+}
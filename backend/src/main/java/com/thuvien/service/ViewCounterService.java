@@ -0,0 +1,255 @@
+package com.thuvien.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind view counter.
+ *
+ * Each view only bumps a striped {@link LongAdder} for the book. A scheduler drains the
+ * accumulated deltas every {@code books.views.flush-interval-ms} (1 s by default) into JDBC
+ * batches of {@code UPDATE books SET views = COALESCE(views, 0) + ?, updated_at = updated_at
+ * WHERE id = ?}, so hot books no longer cause a read-modify-write and row lock per view.
+ *
+ * Each chunk of {@code books.views.flush-batch-size} rows is written in its own transaction:
+ * a failed chunk is rolled back as a whole, so putting its deltas back is exact.
+ */
+@Service
+public class ViewCounterService {
+
+    // updated_at is assigned explicitly so MySQL's ON UPDATE CURRENT_TIMESTAMP does not fire for view counts
+    private static final String FLUSH_SQL =
+            "UPDATE books SET views = COALESCE(views, 0) + ?, updated_at = updated_at WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${books.views.flush-batch-size:500}")
+    private int batchSize;
+
+    // One adder per book id; kept for the life of the process (bounded by catalogue size, unknown ids are dropped on flush)
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder recordedViews = new LongAdder();
+    private final AtomicLong flushedViews = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private volatile long lastFlushDurationMs;
+
+    // Odd while a flush is writing and publishing its deltas, so readers can tell a load raced one
+    private final AtomicLong flushVersion = new AtomicLong();
+
+    // Read from the existing counters when scraped; increment() itself stays untouched
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder("books.views.recorded", recordedViews, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("books.views.flushed", flushedViews, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("books.views.flush.failures", failedFlushCount, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("books.views.pending", this, ViewCounterService::getPendingViewsTotal)
+                .register(meterRegistry);
+        Gauge.builder("books.views.flush.duration", this, ViewCounterService::getLastFlushDurationMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record one view. The id is not checked: views of unknown books are dropped by the flush.
+     * @return views of this book that are not yet written to the database, including this one
+     */
+    public long increment(Long bookId) {
+        LongAdder adder = pending.get(bookId);
+        if (adder == null) {
+            adder = pending.computeIfAbsent(bookId, id -> new LongAdder());
+        }
+        adder.increment();
+        recordedViews.increment();
+        return adder.sum();
+    }
+
+    /**
+     * Views of a book that are not yet written to the database
+     */
+    public long getPendingViews(Long bookId) {
+        LongAdder adder = pending.get(bookId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * Changes when a flush starts writing and again after its {@link ViewsFlushedEvent} was
+     * handled; odd while a flush is in progress. A value read from the database between two
+     * equal, even versions already includes every flushed delta and none still to come.
+     */
+    public long getFlushVersion() {
+        return flushVersion.get();
+    }
+
+    /**
+     * Forget pending views of a deleted book
+     */
+    public void discard(Long bookId) {
+        pending.remove(bookId);
+    }
+
+    @Scheduled(fixedDelayString = "${books.views.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Write all pending deltas to the database
+     * @return number of books updated
+     */
+    public synchronized int flush() {
+        long start = System.currentTimeMillis();
+
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sum();
+            if (delta == 0) {
+                continue;
+            }
+            // Subtract exactly what was read: increments racing with the flush stay for the next round
+            entry.getValue().add(-delta);
+            ids.add(entry.getKey());
+            batch.add(new Object[]{delta, entry.getKey()});
+        }
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        flushVersion.incrementAndGet();
+        try {
+            return write(ids, batch, start);
+        } finally {
+            flushVersion.incrementAndGet();
+        }
+    }
+
+    private int write(List<Long> ids, List<Object[]> batch, long start) {
+        int flushed = 0;
+        Map<Long, Long> written = new HashMap<>();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<Object[]> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+            try {
+                // All or nothing per chunk: with rewriteBatchedStatements the driver sends several statements
+                int[] rows = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, chunk));
+                for (int i = 0; i < chunk.size(); i++) {
+                    Object[] args = chunk.get(i);
+                    if (rows[i] == 0) {
+                        // Views are counted without looking the book up: drop ids with no row
+                        forget((Long) args[1]);
+                        continue;
+                    }
+                    flushedViews.addAndGet((Long) args[0]);
+                    written.put((Long) args[1], (Long) args[0]);
+                    flushed++;
+                }
+            } catch (DataAccessException | TransactionException e) {
+                System.err.println("Failed to flush view counts: " + e.getMessage());
+                failedFlushCount.incrementAndGet();
+                // Put back the rolled back chunk and everything after it, so no view is lost or counted twice
+                for (int i = from; i < batch.size(); i++) {
+                    pending.computeIfAbsent(ids.get(i), id -> new LongAdder()).add((Long) batch.get(i)[0]);
+                }
+                break;
+            }
+        }
+
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(new ViewsFlushedEvent(written));
+        }
+        flushCount.incrementAndGet();
+        lastFlushDurationMs = System.currentTimeMillis() - start;
+        return flushed;
+    }
+
+    private void forget(Long bookId) {
+        LongAdder adder = pending.get(bookId);
+        if (adder != null && adder.sum() == 0) {
+            pending.remove(bookId, adder);
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+
+    /**
+     * Total views waiting to be written
+     */
+    public long getPendingViewsTotal() {
+        long total = 0;
+        for (LongAdder adder : pending.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Number of books with views waiting to be written
+     */
+    public int getPendingBooks() {
+        int count = 0;
+        for (LongAdder adder : pending.values()) {
+            if (adder.sum() != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getRecordedViews() {
+        return recordedViews.sum();
+    }
+
+    public long getFlushedViews() {
+        return flushedViews.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    public long getLastFlushDurationMs() {
+        return lastFlushDurationMs;
+    }
+}
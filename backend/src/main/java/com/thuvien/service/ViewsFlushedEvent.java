@@ -0,0 +1,11 @@
+package com.thuvien.service;
+
+import java.util.Map;
+
+/**
+ * Published by {@link ViewCounterService} after view deltas are written to the database
+ *
+ * @param deltas Views added per book id
+ */
+public record ViewsFlushedEvent(Map<Long, Long> deltas) {
+}
@@ -0,0 +1,42 @@
+package com.thuvien.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+
+/**
+ * The Google Drive operations used by {@link DriveStorageBackend}, implemented by both
+ * the OAuth and the service-account Drive services
+ */
+public interface DriveClient {
+
+    /**
+     * Upload a file and make it publicly readable. The file is left in place: whoever
+     * created it deletes it.
+     * @return Public Drive URL of the uploaded file
+     */
+    String uploadFile(File file, String fileName) throws IOException, GeneralSecurityException;
+
+    void deleteFile(String fileId) throws IOException, GeneralSecurityException;
+
+    void downloadFile(String fileId, Path target) throws IOException, GeneralSecurityException;
+
+    /**
+     * Stream part of a file using an HTTP Range request
+     * @param length Number of bytes, or -1 for everything from {@code offset} on
+     */
+    InputStream openRange(String fileId, long offset, long length) throws IOException, GeneralSecurityException;
+
+    String extractFileId(String driveUrl);
+
+    /**
+     * Make sure a usable access token is held, refreshing it if it has expired or is about to.
+     * Never starts an interactive authorization.
+     * @return When the access token expires, or null if unknown
+     * @throws IOException if there is no valid token and it cannot be refreshed
+     */
+    Instant checkToken() throws IOException, GeneralSecurityException;
+}
@@ -0,0 +1,88 @@
+package com.thuvien.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+
+/**
+ * Stores objects as public files on Google Drive; locators are Drive URLs
+ */
+public class DriveStorageBackend implements StorageBackend {
+
+    private final String name;
+    private final DriveClient client;
+
+    public DriveStorageBackend(String name, DriveClient client) {
+        this.name = name;
+        this.client = client;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean handles(String locator) {
+        return locator != null && locator.startsWith("http");
+    }
+
+    @Override
+    public String put(Path file, String fileName, String contentType, String sha256) throws IOException {
+        try {
+            return client.uploadFile(file.toFile(), fileName);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Google Drive error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String put(InputStream content, String fileName, String contentType) throws IOException {
+        // The Drive client uploads from a file
+        Path tempFile = Files.createTempFile("drive-put-", ".tmp");
+        try {
+            Files.copy(content, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return put(tempFile, fileName, contentType, null);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void get(String locator, Path target) throws IOException {
+        try {
+            client.downloadFile(fileId(locator), target);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Google Drive error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream openRange(String locator, long offset, long length) throws IOException {
+        try {
+            return client.openRange(fileId(locator), offset, length);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Google Drive error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String locator) throws IOException {
+        try {
+            client.deleteFile(fileId(locator));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Google Drive error: " + e.getMessage(), e);
+        }
+    }
+
+    private String fileId(String locator) throws IOException {
+        String fileId = client.extractFileId(locator);
+        if (fileId == null) {
+            throw new IOException("Not a Google Drive URL: " + locator);
+        }
+        return fileId;
+    }
+}
@@ -0,0 +1,25 @@
+package com.thuvien.storage;
+
+import java.io.IOException;
+
+/**
+ * A Drive call was not made, or was abandoned, because Drive is failing or overloaded:
+ * the circuit breaker is open, the bulkhead is full or the call ran past its deadline.
+ * Callers should degrade (placeholder, cached copy, 503) instead of retrying at once.
+ */
+public class DriveUnavailableException extends IOException {
+
+    private final long retryAfterSeconds;
+
+    public DriveUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Suggested wait before trying again, for a Retry-After header
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
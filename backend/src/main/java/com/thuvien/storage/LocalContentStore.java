@@ -0,0 +1,240 @@
+package com.thuvien.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store on the local filesystem.
+ *
+ * An object lives at {@code root/ab/cd/<sha256>.<ext>}, named by the SHA-256 of its bytes,
+ * so storing the same PDF twice keeps one file. Writes go to {@code root/.tmp} and are
+ * renamed into place, so readers never see a partial object. Files handed over with
+ * {@link #putOwned} are hard-linked instead of copied when on the same filesystem; other
+ * files are copied, since a later write to the caller's file would change the object.
+ *
+ * Locators are absolute paths, so any code that reads {@code book_path} as a file keeps
+ * working. Paths outside the root (books stored before this store existed) are readable too.
+ * Locators with a URI scheme ({@code https://}, {@code s3://}, ...) are not local.
+ */
+public class LocalContentStore implements StorageBackend {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // "https://...", "s3://..." but not a Windows drive letter ("D:\books")
+    private static final Pattern URI_SCHEME = Pattern.compile("^[A-Za-z][A-Za-z0-9+.-]*://");
+
+    private final Path root;
+    private final Path tmpDir;
+
+    public LocalContentStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.tmpDir = this.root.resolve(".tmp");
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean handles(String locator) {
+        return locator != null && !locator.isEmpty() && !URI_SCHEME.matcher(locator).lookingAt();
+    }
+
+    @Override
+    public String put(Path file, String fileName, String contentType, String sha256) throws IOException {
+        return store(file, fileName, sha256, false);
+    }
+
+    @Override
+    public String putOwned(Path file, String fileName, String contentType, String sha256) throws IOException {
+        return store(file, fileName, sha256, true);
+    }
+
+    private String store(Path file, String fileName, String sha256, boolean owned) throws IOException {
+        String hash = sha256 != null ? sha256 : sha256(file);
+        Path target = objectPath(hash, fileName);
+        if (Files.exists(target)) {
+            return target.toString();
+        }
+        Files.createDirectories(target.getParent());
+
+        if (owned) {
+            try {
+                // Same filesystem: a second name for the same inode, no bytes copied
+                Files.createLink(target, file);
+                return target.toString();
+            } catch (FileAlreadyExistsException e) {
+                return target.toString();
+            } catch (IOException | UnsupportedOperationException e) {
+                // Different filesystem or no hard links: copy below
+            }
+        }
+
+        Path temp = Files.createTempFile(tmpDir, "put-", ".part");
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return commit(temp, target);
+    }
+
+    @Override
+    public String put(InputStream content, String fileName, String contentType) throws IOException {
+        // Hash while writing; the final name is only known once the last byte is read
+        Path temp = Files.createTempFile(tmpDir, "put-", ".part");
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try (ReadableByteChannel in = Channels.newChannel(content);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Path target = objectPath(HexFormat.of().formatHex(digest.digest()), fileName);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(temp);
+            return target.toString();
+        }
+        Files.createDirectories(target.getParent());
+        return commit(temp, target);
+    }
+
+    @Override
+    public void get(String locator, Path target) throws IOException {
+        Files.copy(Paths.get(locator), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public InputStream openRange(String locator, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(locator), StandardOpenOption.READ);
+        long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+        return new RangeInputStream(channel, offset, end);
+    }
+
+    @Override
+    public void delete(String locator) throws IOException {
+        Files.deleteIfExists(Paths.get(locator));
+    }
+
+    @Override
+    public Path localPath(String locator) {
+        return Paths.get(locator);
+    }
+
+    private String commit(Path temp, Path target) throws IOException {
+        try {
+            // Identical content under the same name: replacing an existing object is harmless
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return target.toString();
+    }
+
+    private Path objectPath(String sha256, String fileName) {
+        String extension = "";
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        if (dot >= 0) {
+            extension = fileName.substring(dot).toLowerCase(Locale.ROOT);
+        }
+        return root.resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4))
+                .resolve(sha256 + extension);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Positional reads of [position, end) from a channel
+     */
+    private static class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int count = (int) Math.min(length, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, count), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
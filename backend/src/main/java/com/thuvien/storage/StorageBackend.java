@@ -0,0 +1,66 @@
+package com.thuvien.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Where book PDFs and thumbnails are kept.
+ *
+ * Objects are identified by a locator string, which is what gets saved in
+ * {@code books.book_path} / {@code books.thumbnail_path}: a local path or a Drive URL.
+ */
+public interface StorageBackend {
+
+    /**
+     * Short name used in configuration and logs
+     */
+    String getName();
+
+    /**
+     * Whether this backend can read the given locator
+     */
+    boolean handles(String locator);
+
+    /**
+     * Store a local file. The file itself is left in place for the caller.
+     * @param sha256 Hex SHA-256 of the file if already known, else null
+     * @return Locator of the stored object
+     */
+    String put(Path file, String fileName, String contentType, String sha256) throws IOException;
+
+    /**
+     * Like {@link #put(Path, String, String, String)}, for a file the application created
+     * and never writes to again (a spooled upload or a temp file). The backend may keep the
+     * file itself as the stored object instead of copying it.
+     */
+    default String putOwned(Path file, String fileName, String contentType, String sha256) throws IOException {
+        return put(file, fileName, contentType, sha256);
+    }
+
+    /**
+     * Store everything read from a stream
+     * @return Locator of the stored object
+     */
+    String put(InputStream content, String fileName, String contentType) throws IOException;
+
+    /**
+     * Copy an object to a local file
+     */
+    void get(String locator, Path target) throws IOException;
+
+    /**
+     * Read part of an object
+     * @param length Number of bytes, or -1 for everything from {@code offset} on
+     */
+    InputStream openRange(String locator, long offset, long length) throws IOException;
+
+    void delete(String locator) throws IOException;
+
+    /**
+     * The object as a local file that can be read in place, or null for remote backends
+     */
+    default Path localPath(String locator) {
+        return null;
+    }
+}
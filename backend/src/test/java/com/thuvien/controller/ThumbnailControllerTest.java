@@ -0,0 +1,124 @@
+package com.thuvien.controller;
+
+import com.thuvien.entity.Book;
+import com.thuvien.service.BookService;
+import com.thuvien.service.ImageResampler;
+import com.thuvien.service.ThumbnailCacheService;
+import com.thuvien.service.ThumbnailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ThumbnailControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path thumbnail = tempDir.resolve("book_7_thumb.jpg");
+        BufferedImage cover = new BufferedImage(600, 800, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = cover.createGraphics();
+        graphics.setColor(new Color(0x3366AA));
+        graphics.fillRect(0, 0, 600, 800);
+        graphics.dispose();
+        ImageIO.write(cover, "jpeg", thumbnail.toFile());
+
+        Book book = new Book();
+        book.setId(7L);
+        book.setThumbnailPath(thumbnail.toString());
+        BookService bookService = mock(BookService.class);
+        when(bookService.getBookById(7L)).thenReturn(Optional.of(book));
+
+        // Renditions are computed by the cache loader on every request
+        ThumbnailCacheService cacheService = mock(ThumbnailCacheService.class);
+        when(cacheService.get(anyString(), anyBoolean(), any())).thenAnswer(invocation -> {
+            ThumbnailCacheService.Loader loader = invocation.getArgument(2);
+            byte[] bytes = loader.load();
+            return new ThumbnailCacheService.CachedImage(bytes, "\"" + Arrays.hashCode(bytes) + "\"");
+        });
+
+        // Real methods without the constructor, which creates the thumbnail directory
+        ThumbnailService thumbnailService = mock(ThumbnailService.class, CALLS_REAL_METHODS);
+        ReflectionTestUtils.setField(thumbnailService, "imageResampler", new ImageResampler());
+        ReflectionTestUtils.setField(thumbnailService, "renditionQuality", 0.8f);
+        ReflectionTestUtils.setField(thumbnailService, "hidpiRenditionQuality", 0.7f);
+        ReflectionTestUtils.setField(thumbnailService, "webpQuality", 0.75f);
+
+        ThumbnailController controller = new ThumbnailController();
+        ReflectionTestUtils.setField(controller, "bookService", bookService);
+        ReflectionTestUtils.setField(controller, "thumbnailCacheService", cacheService);
+        ReflectionTestUtils.setField(controller, "thumbnailService", thumbnailService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void webpEncoderIsInstalled() {
+        ImageIO.scanForPlugins();
+        assertTrue(ThumbnailService.canEncode("webp"));
+    }
+
+    @Test
+    void servesWebpWhenAccepted() throws Exception {
+        ImageIO.scanForPlugins();
+
+        MvcResult result = mockMvc.perform(get("/api/thumbnails/book_7_thumb.jpg")
+                        .param("width", "300")
+                        .header(HttpHeaders.ACCEPT, "image/avif,image/webp,image/*,*/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/webp"))
+                .andReturn();
+
+        assertTrue(result.getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertEquals("RIFF", new String(body, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("WEBP", new String(body, 8, 4, StandardCharsets.US_ASCII));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(body));
+        assertNotNull(decoded);
+        assertEquals(300, decoded.getWidth());
+    }
+
+    @Test
+    void servesJpegOtherwise() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/thumbnails/book_7_thumb.jpg")
+                        .param("width", "120")
+                        .header(HttpHeaders.ACCEPT, "image/*"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andReturn();
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertNotNull(decoded);
+        assertEquals(120, decoded.getWidth());
+    }
+}
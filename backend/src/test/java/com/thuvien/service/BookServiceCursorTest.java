@@ -0,0 +1,105 @@
+package com.thuvien.service;
+
+import com.thuvien.dto.BookPage;
+import com.thuvien.dto.BookSort;
+import com.thuvien.dto.BookSummary;
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookServiceCursorTest {
+
+    private BookRepository bookRepository;
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        bookService = new BookService();
+        ReflectionTestUtils.setField(bookService, "bookRepository", bookRepository);
+    }
+
+    @Test
+    void cursorRoundTripsSortKeyAndId() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_000_000);
+
+        String cursor = BookService.encodeCursor(createdAt, 42L);
+
+        assertFalse(cursor.contains("="));
+        assertArrayEquals(new String[]{createdAt.toString(), "42"}, BookService.decodeCursor(cursor));
+        assertArrayEquals(new String[]{"1500", "7"}, BookService.decodeCursor(BookService.encodeCursor(1500L, 7L)));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BookService.decodeCursor("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> BookService.decodeCursor(encode("no-separator")));
+        assertThrows(IllegalArgumentException.class, () -> BookService.decodeCursor(encode("1|2|3")));
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.getBooksPage(BookSort.VIEWS, encode("many|7"), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.getBooksPage(BookSort.NEWEST, encode("yesterday|7"), 10));
+    }
+
+    @Test
+    void nextCursorContinuesAfterTheLastBookOfThePage() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Book first = book(3L, now, 10L);
+        Book second = book(2L, now.minusHours(1), 20L);
+        Book extra = book(1L, now.minusHours(2), 30L);
+        when(bookRepository.findNewest(any())).thenReturn(List.of(first, second, extra));
+
+        BookPage<BookSummary> page = bookService.getBooksPage(BookSort.NEWEST, null, 2);
+
+        assertEquals(List.of(3L, 2L), page.items().stream().map(BookSummary::id).toList());
+        assertTrue(page.hasMore());
+
+        when(bookRepository.findNewestAfter(now.minusHours(1), 2L, PageRequest.of(0, 3))).thenReturn(List.of(extra));
+        BookPage<BookSummary> next = bookService.getBooksPage(BookSort.NEWEST, page.nextCursor(), 2);
+
+        assertEquals(List.of(1L), next.items().stream().map(BookSummary::id).toList());
+        assertFalse(next.hasMore());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void viewSortedCursorCarriesTheViewCount() {
+        when(bookRepository.findMostViewed(any())).thenReturn(List.of(
+                book(5L, null, 900L), book(9L, null, 900L)));
+
+        BookPage<BookSummary> page = bookService.getBooksPage(BookSort.VIEWS, null, 1);
+
+        assertArrayEquals(new String[]{"900", "5"}, BookService.decodeCursor(page.nextCursor()));
+    }
+
+    private static Book book(Long id, LocalDateTime createdAt, Long views) {
+        Book book = new Book();
+        book.setId(id);
+        book.setName("Sách " + id);
+        book.setCreatedAt(createdAt);
+        book.setViews(views);
+        return book;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
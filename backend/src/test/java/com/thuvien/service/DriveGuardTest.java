@@ -0,0 +1,204 @@
+package com.thuvien.service;
+
+import com.thuvien.storage.DriveUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DriveGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DriveGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ThreadSupport threadSupport = mock(ThreadSupport.class);
+        when(threadSupport.ioThreadFactory(anyString())).thenReturn(ThreadSupport.platformThreadFactory("drive-call-"));
+
+        guard = new DriveGuard();
+        ReflectionTestUtils.setField(guard, "threadSupport", threadSupport);
+        ReflectionTestUtils.setField(guard, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(guard, "uploadTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "downloadTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "rangeTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "deleteTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "thumbnailTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "uploadPermits", 1);
+        ReflectionTestUtils.setField(guard, "readPermits", 4);
+        ReflectionTestUtils.setField(guard, "uploadWaitMs", 0L);
+        ReflectionTestUtils.setField(guard, "readWaitMs", 0L);
+        ReflectionTestUtils.setField(guard, "failureThreshold", 2);
+        ReflectionTestUtils.setField(guard, "openMs", 60000L);
+        guard.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndFailsFast() {
+        failOnce();
+        assertEquals("closed", guard.getCircuitState());
+        failOnce();
+        assertEquals("open", guard.getCircuitState());
+
+        AtomicInteger calls = new AtomicInteger();
+        DriveUnavailableException rejected = assertThrows(DriveUnavailableException.class,
+                () -> guard.call(DriveGuard.Operation.DOWNLOAD, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, meterRegistry.counter("drive.guard.rejected",
+                "operation", "download", "reason", "circuit-open").count());
+    }
+
+    @Test
+    void successResetsTheFailureCount() throws Exception {
+        failOnce();
+        assertEquals("ok", guard.call(DriveGuard.Operation.DOWNLOAD, () -> "ok"));
+        failOnce();
+        assertEquals("closed", guard.getCircuitState());
+    }
+
+    @Test
+    void errorsThatDoNotMeanDriveIsDownKeepTheCircuitClosed() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(FileNotFoundException.class, () -> guard.call(DriveGuard.Operation.DOWNLOAD, () -> {
+                throw new FileNotFoundException("no such file");
+            }));
+        }
+        assertEquals("closed", guard.getCircuitState());
+    }
+
+    @Test
+    void halfOpenProbeClosesTheCircuitOnSuccess() throws Exception {
+        open();
+        CountDownLatch probing = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> probe = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.call(DriveGuard.Operation.DOWNLOAD, () -> {
+                    probing.countDown();
+                    await(finish);
+                    return "ok";
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(probing.await(5, TimeUnit.SECONDS));
+        assertEquals("half-open", guard.getCircuitState());
+        // Only one probe at a time
+        assertThrows(DriveUnavailableException.class, () -> guard.call(DriveGuard.Operation.DOWNLOAD, () -> "other"));
+
+        finish.countDown();
+        assertEquals("ok", probe.get(5, TimeUnit.SECONDS));
+        assertEquals("closed", guard.getCircuitState());
+        assertEquals("ok", guard.call(DriveGuard.Operation.DOWNLOAD, () -> "ok"));
+    }
+
+    @Test
+    void halfOpenProbeFailureOpensTheCircuitAgain() {
+        open();
+        failOnce();
+        assertEquals("open", guard.getCircuitState());
+        assertThrows(DriveUnavailableException.class, () -> guard.call(DriveGuard.Operation.DOWNLOAD, () -> "ok"));
+    }
+
+    @Test
+    void fullBulkheadRejectsAtOnce() throws Exception {
+        CountDownLatch uploading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.call(DriveGuard.Operation.UPLOAD, () -> {
+                    uploading.countDown();
+                    await(finish);
+                    return "uploaded";
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(uploading.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger calls = new AtomicInteger();
+        DriveUnavailableException rejected = assertThrows(DriveUnavailableException.class,
+                () -> guard.call(DriveGuard.Operation.UPLOAD, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertTrue(rejected.getMessage().contains("Too many"));
+        assertEquals(1.0, meterRegistry.counter("drive.guard.rejected",
+                "operation", "upload", "reason", "bulkhead-full").count());
+        // Reads have their own bulkhead
+        assertEquals("read", guard.call(DriveGuard.Operation.DOWNLOAD, () -> "read"));
+
+        finish.countDown();
+        assertEquals("uploaded", first.get(5, TimeUnit.SECONDS));
+        // The permit is back once the call ends
+        assertEquals("again", guard.call(DriveGuard.Operation.UPLOAD, () -> "again"));
+    }
+
+    @Test
+    void deadlineStopsWaitingAndInterruptsTheCall() throws Exception {
+        ReflectionTestUtils.setField(guard, "rangeTimeoutMs", 100L);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        DriveUnavailableException timedOut = assertThrows(DriveUnavailableException.class,
+                () -> guard.call(DriveGuard.Operation.OPEN_RANGE, () -> {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "late";
+                }));
+
+        assertTrue(timedOut.getMessage().contains("timed out"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.counter("drive.guard.timeouts", "operation", "open-range").count());
+        // A timeout counts as a failure
+        failOnce();
+        assertEquals("open", guard.getCircuitState());
+    }
+
+    private void failOnce() {
+        assertThrows(IOException.class, () -> guard.call(DriveGuard.Operation.DOWNLOAD, () -> {
+            throw new IOException("connection reset");
+        }));
+    }
+
+    // Open the circuit, then let the open period run out
+    private void open() {
+        failOnce();
+        failOnce();
+        assertEquals("open", guard.getCircuitState());
+        ReflectionTestUtils.setField(guard, "openedAt", 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
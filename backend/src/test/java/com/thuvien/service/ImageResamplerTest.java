@@ -0,0 +1,157 @@
+package com.thuvien.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageResamplerTest {
+
+    @ParameterizedTest
+    @EnumSource(ImageResampler.Filter.class)
+    void flatColourStaysExact(ImageResampler.Filter filter) {
+        ImageResampler resampler = new ImageResampler(filter);
+        BufferedImage source = filled(BufferedImage.TYPE_INT_RGB, 997, 1301, 0x2A7FD3);
+
+        // Halving plus the final pass, the final pass alone, and an enlargement
+        for (int[] size : new int[][]{{120, 157}, {700, 913}, {1200, 1500}}) {
+            BufferedImage result = resampler.resize(source, size[0], size[1]);
+            assertEquals(size[0], result.getWidth());
+            assertEquals(size[1], result.getHeight());
+            for (int y = 0; y < result.getHeight(); y += 7) {
+                for (int x = 0; x < result.getWidth(); x += 7) {
+                    assertEquals(0x2A7FD3, result.getRGB(x, y) & 0xFFFFFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    void halvingAveragesEachBlock() {
+        // 8x8 in four flat quadrants: every 2x2 block stays inside one quadrant
+        BufferedImage source = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = source.createGraphics();
+        fill(graphics, 0xFF0000, 0, 0);
+        fill(graphics, 0x00FF00, 4, 0);
+        fill(graphics, 0x0000FF, 0, 4);
+        fill(graphics, 0xFFFFFF, 4, 4);
+        graphics.dispose();
+
+        BufferedImage result = new ImageResampler(ImageResampler.Filter.BILINEAR).resize(source, 2, 2);
+
+        assertEquals(0xFF0000, result.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0x00FF00, result.getRGB(1, 0) & 0xFFFFFF);
+        assertEquals(0x0000FF, result.getRGB(0, 1) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, result.getRGB(1, 1) & 0xFFFFFF);
+    }
+
+    @Test
+    void reductionAveragesFinePatternsInsteadOfAliasing() {
+        // One-pixel black and white stripes reduced 3x: point sampling would give pure black or white
+        BufferedImage source = new BufferedImage(300, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 300; x++) {
+                source.setRGB(x, y, x % 2 == 0 ? 0xFFFFFF : 0x000000);
+            }
+        }
+
+        for (ImageResampler.Filter filter : ImageResampler.Filter.values()) {
+            BufferedImage result = new ImageResampler(filter).resize(source, 100, 10);
+            for (int x = 2; x < 98; x++) {
+                int grey = result.getRGB(x, 5) & 0xFF;
+                assertTrue(grey > 70 && grey < 185, filter + " at " + x + ": " + grey);
+            }
+        }
+    }
+
+    @Test
+    void lanczosOvershootIsClampedPerChannel() {
+        // A hard black/white edge: Lanczos lobes overshoot, channels must not wrap into each other
+        BufferedImage source = new BufferedImage(40, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 40; x++) {
+                source.setRGB(x, y, x < 20 ? 0x000000 : 0xFFFFFF);
+            }
+        }
+
+        BufferedImage result = new ImageResampler(ImageResampler.Filter.LANCZOS3).resize(source, 97, 4);
+
+        for (int x = 0; x < 97; x++) {
+            int rgb = result.getRGB(x, 1);
+            int red = rgb >> 16 & 0xFF;
+            assertEquals(red, rgb >> 8 & 0xFF);
+            assertEquals(red, rgb & 0xFF);
+        }
+        assertEquals(0x000000, result.getRGB(0, 1) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, result.getRGB(96, 1) & 0xFFFFFF);
+    }
+
+    @Test
+    void readsDecodedJpegAndAlphaLayoutsWithChannelsInOrder() {
+        ImageResampler resampler = new ImageResampler();
+        for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR}) {
+            BufferedImage result = resampler.resize(filled(type, 64, 48, 0xC81E0A), 16, 12);
+            assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+            assertEquals(0xC81E0A, result.getRGB(8, 6) & 0xFFFFFF, "type " + type);
+        }
+    }
+
+    @Test
+    void sameSizeCopiesAndLeavesTheSourceUntouched() {
+        BufferedImage source = new BufferedImage(31, 17, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 17; y++) {
+            for (int x = 0; x < 31; x++) {
+                source.setRGB(x, y, x * 8 << 16 | y * 15 << 8 | (x + y) * 5);
+            }
+        }
+        int[] before = source.getRGB(0, 0, 31, 17, null, 0, 31);
+
+        BufferedImage same = new ImageResampler().resize(source, 31, 17);
+        new ImageResampler().resize(source, 7, 4);
+
+        assertArrayEquals(before, same.getRGB(0, 0, 31, 17, null, 0, 31));
+        assertArrayEquals(before, source.getRGB(0, 0, 31, 17, null, 0, 31));
+    }
+
+    @Test
+    void resizeToWidthKeepsTheAspectRatio() {
+        ImageResampler resampler = new ImageResampler();
+        BufferedImage page = filled(BufferedImage.TYPE_INT_RGB, 1240, 1754, 0xFFFFFF);
+
+        BufferedImage result = resampler.resizeToWidth(page, 300);
+        assertEquals(300, result.getWidth());
+        assertEquals(424, result.getHeight());
+
+        BufferedImage strip = resampler.resizeToWidth(filled(BufferedImage.TYPE_INT_RGB, 1000, 2, 0), 100);
+        assertEquals(1, strip.getHeight());
+    }
+
+    @Test
+    void rejectsEmptyTargets() {
+        BufferedImage source = filled(BufferedImage.TYPE_INT_RGB, 10, 10, 0);
+        assertThrows(IllegalArgumentException.class, () -> new ImageResampler().resize(source, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new ImageResampler().resize(source, 5, -1));
+    }
+
+    private static BufferedImage filled(int type, int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(rgb));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static void fill(Graphics2D graphics, int rgb, int x, int y) {
+        graphics.setColor(new Color(rgb));
+        graphics.fillRect(x, y, 4, 4);
+    }
+}
@@ -0,0 +1,104 @@
+package com.thuvien.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thuvien.dto.ImportManifestEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportManifestTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void matchesColumnsByNameInAnyOrder() throws IOException {
+        List<ImportManifestEntry> entries = csv("""
+                path,Category,AUTHOR,name
+                books/mat-biec.pdf,Tiểu thuyết,Nguyễn Nhật Ánh,Mắt Biếc
+                """);
+
+        assertEquals(List.of(new ImportManifestEntry("Mắt Biếc", "Nguyễn Nhật Ánh", "Tiểu thuyết", "books/mat-biec.pdf")),
+                entries);
+    }
+
+    @Test
+    void acceptsTitleAndFileAliasesAndLeavesMissingColumnsNull() throws IOException {
+        List<ImportManifestEntry> entries = csv("""
+                title,file
+                Dế Mèn phiêu lưu ký,de-men.pdf
+                """);
+
+        assertEquals(List.of(new ImportManifestEntry("Dế Mèn phiêu lưu ký", null, null, "de-men.pdf")), entries);
+    }
+
+    @Test
+    void readsQuotedValuesWithCommasAndQuotes() throws IOException {
+        List<ImportManifestEntry> entries = csv("""
+                name,author,path
+                "Chiến tranh, hòa bình","Lev ""Leo"" Tolstoy", a.pdf
+                """);
+
+        ImportManifestEntry entry = entries.get(0);
+        assertEquals("Chiến tranh, hòa bình", entry.name());
+        assertEquals("Lev \"Leo\" Tolstoy", entry.author());
+        assertEquals("a.pdf", entry.path());
+    }
+
+    @Test
+    void skipsByteOrderMarkAndBlankLinesAndTreatsEmptyValuesAsNull() throws IOException {
+        List<ImportManifestEntry> entries = csv("\uFEFFname,author,path\n\na,,a.pdf\n   \nb, ,b.pdf\n");
+
+        assertEquals(2, entries.size());
+        assertEquals(new ImportManifestEntry("a", null, null, "a.pdf"), entries.get(0));
+        assertEquals(new ImportManifestEntry("b", null, null, "b.pdf"), entries.get(1));
+    }
+
+    @Test
+    void emptyManifestHasNoEntries() throws IOException {
+        assertTrue(csv("").isEmpty());
+    }
+
+    @Test
+    void rejectsHeaderWithoutPathColumn() {
+        assertThrows(IllegalArgumentException.class, () -> csv("name,author\na,b\n"));
+    }
+
+    @Test
+    void rejectsLineWithoutPathAndNamesTheLine() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> csv("name,path\na,a.pdf\nb,\n"));
+        assertTrue(error.getMessage().contains("line 3"));
+    }
+
+    @Test
+    void readsJsonManifestsByFileName() throws IOException {
+        List<ImportManifestEntry> entries = ImportManifest.read(stream("""
+                [{"name": "Mắt Biếc", "path": "mat-biec.pdf"}]
+                """), "manifest.JSON", objectMapper);
+
+        assertEquals(List.of(new ImportManifestEntry("Mắt Biếc", null, null, "mat-biec.pdf")), entries);
+    }
+
+    @Test
+    void rejectsJsonEntryWithoutPath() {
+        assertThrows(IllegalArgumentException.class, () -> ImportManifest.read(stream("""
+                [{"name": "Mắt Biếc", "path": " "}]
+                """), "manifest.json", objectMapper));
+    }
+
+    private List<ImportManifestEntry> csv(String text) throws IOException {
+        return ImportManifest.read(stream(text), "manifest.csv", objectMapper);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,142 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchIndexServiceTest {
+
+    private BookRepository bookRepository;
+    private BookCacheService bookCacheService;
+    private SearchIndexService searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        bookCacheService = mock(BookCacheService.class);
+        when(bookRepository.findAll()).thenReturn(List.of(
+                book(1L, "Mắt Biếc", "Nguyễn Nhật Ánh", "Tiểu thuyết"),
+                book(2L, "Đất rừng phương Nam", "Đoàn Giỏi", "Thiếu nhi"),
+                book(3L, "Tôi thấy hoa vàng trên cỏ xanh", "Nguyễn Nhật Ánh", "Tiểu thuyết"),
+                book(4L, "Nhật ký trong tù", "Hồ Chí Minh", "Thơ")));
+        searchIndex = new SearchIndexService();
+        ReflectionTestUtils.setField(searchIndex, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(searchIndex, "bookCacheService", bookCacheService);
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void foldRemovesVietnameseDiacriticsAndLowercases() {
+        assertEquals("mat biec", SearchIndexService.fold("Mắt Biếc"));
+        assertEquals("dat rung phuong nam", SearchIndexService.fold("Đất rừng phương Nam"));
+        assertEquals("nguyen nhat anh", SearchIndexService.fold("NGUYỄN NHẬT ÁNH"));
+        assertEquals("ho chi minh", SearchIndexService.fold("Hồ Chí Minh"));
+        assertEquals("", SearchIndexService.fold(null));
+    }
+
+    @Test
+    void foldHandlesPrecomposedAndDecomposedInputAlike() {
+        String decomposed = "Tiểu thuyết";
+        assertEquals("tieu thuyet", SearchIndexService.fold(decomposed));
+        assertEquals(SearchIndexService.fold("Tiểu thuyết"), SearchIndexService.fold(decomposed));
+    }
+
+    @Test
+    void tokenizeSplitsOnPunctuationAndWhitespace() {
+        assertEquals(List.of("toi", "thay", "hoa", "vang", "2"),
+                SearchIndexService.tokenize("  Tôi thấy hoa-vàng, (2) "));
+        assertTrue(SearchIndexService.tokenize("  -- ").isEmpty());
+        assertTrue(SearchIndexService.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void queriesWithoutDiacriticsMatch() {
+        assertEquals(List.of(1L), searchIndex.searchIds("mat biec", SearchIndexService.ALL_FIELDS, 10));
+        assertEquals(List.of(2L), searchIndex.searchIds("dat rung", SearchIndexService.ALL_FIELDS, 10));
+        assertEquals(List.of(2L), searchIndex.searchIds("ĐOÀN", SearchIndexService.ALL_FIELDS, 10));
+    }
+
+    @Test
+    void everyTermMustMatchExactlyOrAsPrefix() {
+        assertEquals(List.of(3L), searchIndex.searchIds("hoa va", SearchIndexService.ALL_FIELDS, 10));
+        assertTrue(searchIndex.searchIds("hoa biec", SearchIndexService.ALL_FIELDS, 10).isEmpty());
+    }
+
+    @Test
+    void nameMatchesRankAboveAuthorMatches() {
+        // "nhat" is in book 4's name and in the author of books 1 and 3
+        assertEquals(4L, searchIndex.searchIds("nhat", SearchIndexService.ALL_FIELDS, 10).get(0));
+        assertEquals(List.of(3L, 1L), searchIndex.searchIds("nhat", SearchIndexService.FIELD_AUTHOR, 10));
+    }
+
+    @Test
+    void indexAndRemoveKeepTheIndexCurrent() {
+        Book renamed = book(1L, "Cô gái đến từ hôm qua", "Nguyễn Nhật Ánh", "Tiểu thuyết");
+        searchIndex.index(renamed);
+        assertTrue(searchIndex.searchIds("mat biec", SearchIndexService.ALL_FIELDS, 10).isEmpty());
+        assertEquals(List.of(1L), searchIndex.searchIds("co gai", SearchIndexService.ALL_FIELDS, 10));
+
+        searchIndex.remove(1L);
+        assertTrue(searchIndex.searchIds("co gai", SearchIndexService.ALL_FIELDS, 10).isEmpty());
+        assertEquals(3, searchIndex.size());
+    }
+
+    @Test
+    void resultsAreCappedAtTheLimitBestFirst() {
+        List<Long> all = searchIndex.searchIds("n", SearchIndexService.ALL_FIELDS, 10);
+        assertEquals(4, all.size());
+        assertEquals(all.subList(0, 2), searchIndex.searchIds("n", SearchIndexService.ALL_FIELDS, 2));
+    }
+
+    @Test
+    void searchResolvesOnlyTheKeptIdsThroughTheBookCache() {
+        Book first = book(3L, "Tôi thấy hoa vàng trên cỏ xanh", "Nguyễn Nhật Ánh", "Tiểu thuyết");
+        // Book 1 was deleted since it was indexed
+        when(bookCacheService.getBooks(List.of(3L, 1L))).thenReturn(Map.of(3L, first));
+
+        assertEquals(List.of(first), searchIndex.search("nguyen", SearchIndexService.FIELD_AUTHOR, 2));
+        verify(bookCacheService).getBooks(List.of(3L, 1L));
+        verify(bookRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void changesDuringARebuildAreKept() {
+        when(bookRepository.findAll()).thenAnswer(invocation -> {
+            // Events handled while the catalogue is being read
+            searchIndex.index(book(5L, "Cho tôi xin một vé đi tuổi thơ", "Nguyễn Nhật Ánh", "Tiểu thuyết"));
+            searchIndex.remove(2L);
+            return List.of(
+                    book(1L, "Mắt Biếc", "Nguyễn Nhật Ánh", "Tiểu thuyết"),
+                    book(2L, "Đất rừng phương Nam", "Đoàn Giỏi", "Thiếu nhi"));
+        });
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(5L), searchIndex.searchIds("ve di tuoi tho", SearchIndexService.ALL_FIELDS, 10));
+        assertTrue(searchIndex.searchIds("dat rung", SearchIndexService.ALL_FIELDS, 10).isEmpty());
+        assertEquals(2, searchIndex.size());
+    }
+
+    private static Book book(Long id, String name, String author, String category) {
+        Book book = new Book();
+        book.setId(id);
+        book.setName(name);
+        book.setAuthor(author);
+        book.setCategory(category);
+        return book;
+    }
+}
@@ -0,0 +1,120 @@
+package com.thuvien.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailCacheServiceTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private ThumbnailCacheService cacheService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheService = new ThumbnailCacheService();
+        ReflectionTestUtils.setField(cacheService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cacheService, "maxMemoryMb", 1L);
+        ReflectionTestUtils.setField(cacheService, "maxDiskMb", 1L);
+        ReflectionTestUtils.setField(cacheService, "cacheDir", cacheDir.toString());
+        cacheService.init();
+    }
+
+    @Test
+    void slowLoadDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ThumbnailCacheService.CachedImage> slow = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cacheService.get("https://drive.google.com/slow", true, () -> {
+                    loading.countDown();
+                    await(finish);
+                    return new byte[]{1};
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // Many keys, so some share a bin with the slow one
+        for (int i = 0; i < 200; i++) {
+            byte[] bytes = {(byte) i};
+            assertArrayEquals(bytes, cacheService.get("local-" + i, false, () -> bytes).bytes());
+        }
+        assertFalse(slow.isDone());
+
+        finish.countDown();
+        assertArrayEquals(new byte[]{1}, slow.get(5, TimeUnit.SECONDS).bytes());
+    }
+
+    @Test
+    void concurrentRequestsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ThumbnailCacheService.Loader loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(finish);
+            return new byte[]{42};
+        };
+
+        CompletableFuture<ThumbnailCacheService.CachedImage> first = CompletableFuture.supplyAsync(() -> get("key", loader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ThumbnailCacheService.CachedImage> second = CompletableFuture.supplyAsync(() -> get("key", loader));
+        Thread.sleep(50);
+        finish.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertSame(first.get(), cacheService.get("key", false, loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedLoadIsRethrownAndNotCached() throws IOException {
+        assertThrows(FileNotFoundException.class, () -> cacheService.get("https://drive.google.com/gone", true, () -> {
+            throw new FileNotFoundException("404");
+        }));
+
+        byte[] bytes = {7};
+        assertArrayEquals(bytes, cacheService.get("https://drive.google.com/gone", true, () -> bytes).bytes());
+        assertEquals(1, cacheService.getMemoryEntries());
+        assertEquals(1, cacheService.getDiskBytes());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ThumbnailCacheService.CachedImage get(String key, ThumbnailCacheService.Loader loader) {
+        try {
+            return cacheService.get(key, false, loader);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
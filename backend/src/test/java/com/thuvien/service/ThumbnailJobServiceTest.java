@@ -0,0 +1,58 @@
+package com.thuvien.service;
+
+import com.thuvien.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThumbnailJobServiceTest {
+
+    private static final String OLD_DRIVE = "https://drive.google.com/file/d/old-id/view";
+    private static final String NEW_DRIVE = "https://drive.google.com/file/d/new-id/view";
+
+    private BookRepository bookRepository;
+    private ThumbnailService thumbnailService;
+    private ThumbnailJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        thumbnailService = mock(ThumbnailService.class);
+        jobService = new ThumbnailJobService();
+        ReflectionTestUtils.setField(jobService, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(jobService, "thumbnailService", thumbnailService);
+    }
+
+    @Test
+    void replacedDriveThumbnailIsDeleted() {
+        when(bookRepository.countByThumbnailPath(OLD_DRIVE)).thenReturn(0L);
+
+        jobService.discardPrevious(OLD_DRIVE, NEW_DRIVE);
+
+        verify(thumbnailService).deleteThumbnail(OLD_DRIVE);
+    }
+
+    @Test
+    void thumbnailStillUsedByADuplicateIsKept() {
+        when(bookRepository.countByThumbnailPath(OLD_DRIVE)).thenReturn(1L);
+
+        jobService.discardPrevious(OLD_DRIVE, NEW_DRIVE);
+
+        verify(thumbnailService, never()).deleteThumbnail(anyString());
+    }
+
+    @Test
+    void thumbnailRewrittenInPlaceIsKept() {
+        jobService.discardPrevious("/data/thumbnails/book_7.jpg", "/data/thumbnails/book_7.jpg");
+        jobService.discardPrevious(null, NEW_DRIVE);
+        jobService.discardPrevious("NULL", NEW_DRIVE);
+
+        verify(thumbnailService, never()).deleteThumbnail(anyString());
+    }
+}
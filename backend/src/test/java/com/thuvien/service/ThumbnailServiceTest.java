@@ -0,0 +1,69 @@
+package com.thuvien.service;
+
+import com.thuvien.storage.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTest {
+
+    private static final String DRIVE_URL = "https://drive.google.com/file/d/abc/view";
+
+    private StorageBackend drive;
+    private StorageService storageService;
+    private ThumbnailService thumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        drive = mock(StorageBackend.class);
+        storageService = mock(StorageService.class);
+        // Real methods without the constructor, which creates the thumbnail directory
+        thumbnailService = mock(ThumbnailService.class, CALLS_REAL_METHODS);
+        ReflectionTestUtils.setField(thumbnailService, "storageService", storageService);
+    }
+
+    @Test
+    void driveThumbnailIsDeletedThroughItsBackend() throws IOException {
+        when(storageService.forLocator(DRIVE_URL)).thenReturn(drive);
+
+        thumbnailService.deleteThumbnail(DRIVE_URL);
+
+        verify(drive).delete(DRIVE_URL);
+    }
+
+    @Test
+    void backendFailureIsNotThrown() throws IOException {
+        when(storageService.forLocator(DRIVE_URL)).thenReturn(drive);
+        doThrow(new IOException("Drive down")).when(drive).delete(DRIVE_URL);
+
+        // Logged only: the job that replaced the thumbnail has already succeeded
+        assertDoesNotThrow(() -> thumbnailService.deleteThumbnail(DRIVE_URL));
+    }
+
+    @Test
+    void unknownLocatorIsNotThrown() {
+        when(storageService.forLocator("ftp://elsewhere/x.jpg")).thenThrow(new IllegalArgumentException("unknown"));
+
+        assertDoesNotThrow(() -> thumbnailService.deleteThumbnail("ftp://elsewhere/x.jpg"));
+    }
+
+    @Test
+    void missingThumbnailIsIgnored() {
+        thumbnailService.deleteThumbnail("NULL");
+        thumbnailService.deleteThumbnail("");
+        thumbnailService.deleteThumbnail(null);
+
+        verify(storageService, never()).forLocator(anyString());
+    }
+}
@@ -0,0 +1,115 @@
+package com.thuvien.service;
+
+import com.thuvien.entity.Book;
+import com.thuvien.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendingServiceTest {
+
+    // The books table, most viewed first
+    private final List<Book> table = new ArrayList<>();
+    private BookRepository bookRepository;
+
+    @Test
+    void deletedBookIsReplacedByTheNextMostViewed() {
+        TrendingService trending = trending(3, 500, 400, 300, 200, 100);
+
+        delete(trending, 1L);
+
+        assertEquals(List.of(2L, 3L, 4L), ids(trending.getTopBooks(3)));
+        delete(trending, 3L);
+        assertEquals(List.of(2L, 4L, 5L), ids(trending.getTopBooks(3)));
+    }
+
+    @Test
+    void singleSlotBoardIsRefilled() {
+        TrendingService trending = trending(1, 500, 400);
+
+        delete(trending, 1L);
+
+        assertEquals(List.of(2L), ids(trending.getTopBooks(1)));
+    }
+
+    @Test
+    void noQueryWhenEveryBookIsAlreadyRanked() {
+        TrendingService trending = trending(4, 500, 400, 300);
+
+        delete(trending, 2L);
+
+        assertEquals(List.of(1L, 3L), ids(trending.getTopBooks(4)));
+        verify(bookRepository, never()).findMostViewedAfter(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void refillThatRunsOutStopsQuerying() {
+        TrendingService trending = trending(2, 500, 400, 300);
+
+        delete(trending, 1L);
+        assertEquals(List.of(2L, 3L), ids(trending.getTopBooks(2)));
+        delete(trending, 2L);
+        assertEquals(List.of(3L), ids(trending.getTopBooks(2)));
+        delete(trending, 3L);
+
+        // Only the first refill found a book; the second learned that none is left out
+        verify(bookRepository, times(2)).findMostViewedAfter(anyLong(), anyLong(), any());
+    }
+
+    private TrendingService trending(int capacity, long... views) {
+        for (int i = 0; i < views.length; i++) {
+            Book book = new Book();
+            book.setId(i + 1L);
+            book.setName("Sách " + (i + 1));
+            book.setViews(views[i]);
+            table.add(book);
+        }
+        table.sort(Comparator.comparing(Book::getViews).reversed().thenComparing(Book::getId, Comparator.reverseOrder()));
+
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findMostViewed(any())).thenAnswer(invocation ->
+                page(table, invocation.getArgument(0)));
+        when(bookRepository.findMostViewedAfter(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long afterViews = invocation.getArgument(0);
+            long afterId = invocation.getArgument(1);
+            List<Book> rest = table.stream()
+                    .filter(book -> book.getViews() < afterViews || (book.getViews() == afterViews && book.getId() < afterId))
+                    .toList();
+            return page(rest, invocation.getArgument(2));
+        });
+
+        TrendingService trending = new TrendingService();
+        ReflectionTestUtils.setField(trending, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(trending, "viewCounterService", mock(ViewCounterService.class));
+        ReflectionTestUtils.setField(trending, "capacity", capacity);
+        trending.init();
+        trending.seed();
+        return trending;
+    }
+
+    private void delete(TrendingService trending, Long id) {
+        table.removeIf(book -> book.getId().equals(id));
+        trending.remove(id);
+    }
+
+    private static List<Book> page(List<Book> rows, Pageable pageable) {
+        return new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageable.getPageSize())));
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
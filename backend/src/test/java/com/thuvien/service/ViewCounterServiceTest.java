@@ -0,0 +1,95 @@
+package com.thuvien.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ViewCounterServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private ApplicationEventPublisher eventPublisher;
+    private ViewCounterService viewCounterService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        eventPublisher = mock(ApplicationEventPublisher.class);
+
+        viewCounterService = new ViewCounterService();
+        ReflectionTestUtils.setField(viewCounterService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(viewCounterService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(viewCounterService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(viewCounterService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(viewCounterService, "batchSize", 2);
+    }
+
+    @Test
+    void failedChunkIsRolledBackAndPutBackExactly() {
+        for (long id = 1; id <= 5; id++) {
+            for (int view = 0; view < id; view++) {
+                viewCounterService.increment(id);
+            }
+        }
+        // First chunk commits, second fails
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1, 1})
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+
+        assertEquals(2, viewCounterService.flush());
+
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+        assertEquals(1, viewCounterService.getFailedFlushCount());
+        // The two committed books are flushed once; the other three wait for the next flush
+        ArgumentCaptor<ViewsFlushedEvent> event = ArgumentCaptor.forClass(ViewsFlushedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        Map<Long, Long> written = event.getValue().deltas();
+        assertEquals(viewCounterService.getFlushedViews(), written.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(15 - viewCounterService.getFlushedViews(), viewCounterService.getPendingViewsTotal());
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(written.containsKey(id) ? 0 : id, viewCounterService.getPendingViews(id));
+        }
+        assertEquals(3, viewCounterService.getPendingBooks());
+    }
+
+    @Test
+    void unknownBooksAreDropped() {
+        viewCounterService.increment(1L);
+        viewCounterService.increment(99L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> chunk = invocation.getArgument(1);
+            int[] rows = new int[chunk.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = chunk.get(i)[1].equals(99L) ? 0 : 1;
+            }
+            return rows;
+        });
+
+        assertEquals(1, viewCounterService.flush());
+        assertEquals(0, viewCounterService.getPendingViewsTotal());
+        assertEquals(1, viewCounterService.getFlushedViews());
+    }
+}
@@ -1,5 +1,5 @@
 import { useNavigate } from 'react-router-dom';
-import { API_BASE_URL } from '../config/config';
+import { thumbnailSrcSet, thumbnailUrl } from '../utils/thumbnail';
 import './BookCard.css';
 
 const BookCard = ({ book }) => {
@@ -8,10 +8,11 @@ const BookCard = ({ book }) => {
   // Placeholder as data URL (gray book icon)
   const placeholderImage = 'data:image/svg+xml,%3Csvg xmlns="http://www.w3.org/2000/svg" width="200" height="280" viewBox="0 0 200 280"%3E%3Crect fill="%232a2a2a" width="200" height="280"/%3E%3Ctext x="50%25" y="50%25" dominant-baseline="middle" text-anchor="middle" font-family="Arial" font-size="18" fill="%23999"%3ENo Cover%3C/text%3E%3C/svg%3E';
   
+  // List endpoints send hasThumbnail; full books (detail, history) still carry thumbnailPath
+  const hasThumbnail = book.hasThumbnail ?? (book.thumbnailPath && book.thumbnailPath !== 'NULL');
+
   // Always use backend API endpoint for thumbnails (backend will handle Drive URLs)
-  const thumbnailUrl = (book.thumbnailPath && book.thumbnailPath !== 'NULL')
-    ? `${API_BASE_URL}/api/thumbnails/book_${book.id}.jpg`
-    : placeholderImage;
+  const coverUrl = hasThumbnail ? thumbnailUrl(book, 300) : placeholderImage;
 
   const handleReadClick = (e) => {
     e.stopPropagation();
@@ -22,10 +23,15 @@ const BookCard = ({ book }) => {
     <div className="book-card" onClick={() => navigate(`/sach/${book.id}`)}>
       <div className="book-cover">
         <img 
-          src={thumbnailUrl} 
+          src={coverUrl} 
+          srcSet={hasThumbnail ? thumbnailSrcSet(book) : undefined}
+          sizes="(max-width: 480px) 40vw, 180px"
           alt={book.name}
+          loading="lazy"
+          decoding="async"
           onError={(e) => {
             console.error('Image load failed for book', book.id);
+            e.target.removeAttribute('srcset');
             e.target.src = placeholderImage;
           }}
         />
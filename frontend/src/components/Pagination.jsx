@@ -1,7 +1,10 @@
 import { useState } from 'react';
 import './Pagination.css';
 
-const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
+// reachablePages: trang xa nhất có thể nhảy tới (phân trang keyset chỉ biết con trỏ các trang đã qua)
+const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef, reachablePages = totalPages }) => {
+  const lastPage = Math.min(totalPages, reachablePages);
+
   const [isEditing, setIsEditing] = useState(false);
   const [inputValue, setInputValue] = useState('');
 
@@ -24,7 +27,7 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
   };
 
   const handleNext = () => {
-    if (currentPage < totalPages) {
+    if (currentPage < lastPage) {
       onPageChange(currentPage + 1);
       if (scrollRef?.current) {
         scrollRef.current.scrollIntoView({ behavior: 'smooth', block: 'start' });
@@ -33,8 +36,8 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
   };
 
   const handleLast = () => {
-    if (currentPage !== totalPages) {
-      onPageChange(totalPages);
+    if (currentPage !== lastPage) {
+      onPageChange(lastPage);
       if (scrollRef?.current) {
         scrollRef.current.scrollIntoView({ behavior: 'smooth', block: 'start' });
       }
@@ -58,7 +61,7 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
     const pageNumber = parseInt(inputValue, 10);
     
     // Validate số trang
-    if (!isNaN(pageNumber) && pageNumber >= 1 && pageNumber <= totalPages) {
+    if (!isNaN(pageNumber) && pageNumber >= 1 && pageNumber <= lastPage) {
       onPageChange(pageNumber);
       if (scrollRef?.current) {
         scrollRef.current.scrollIntoView({ behavior: 'smooth', block: 'start' });
@@ -111,7 +114,7 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
             onKeyDown={handleInputKeyDown}
             onBlur={handleInputBlur}
             autoFocus
-            placeholder={`1-${totalPages}`}
+            placeholder={`1-${lastPage}`}
           />
           <span className="page-total">/ {totalPages}</span>
         </div>
@@ -128,7 +131,7 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
       <button 
         className="btn-page" 
         onClick={handleNext}
-        disabled={currentPage >= totalPages}
+        disabled={currentPage >= lastPage}
       >
         Sau →
       </button>
@@ -136,7 +139,7 @@ const Pagination = ({ currentPage, totalPages, onPageChange, scrollRef }) => {
       <button 
         className="btn-page" 
         onClick={handleLast}
-        disabled={currentPage >= totalPages}
+        disabled={currentPage >= lastPage}
         title="Trang cuối"
       >
         Cuối ⇥
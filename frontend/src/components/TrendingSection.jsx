@@ -1,15 +1,30 @@
+import { useState, useEffect } from 'react';
+import { bookAPI } from '../services/api';
 import './TrendingSection.css';
 
-const TrendingSection = ({ books = [] }) => {
-  // Use books from props, display top 10 by views
-  const trendingBooks = books
-    .sort((a, b) => (b.views || 0) - (a.views || 0))
-    .slice(0, 10)
-    .map((book) => ({
-      id: book.id,
-      title: book.name,
-      views: `${(book.views || 0).toLocaleString()} lượt xem`
-    }));
+const TrendingSection = () => {
+  const [books, setBooks] = useState([]);
+
+  useEffect(() => {
+    fetchTrendingBooks();
+  }, []);
+
+  const fetchTrendingBooks = async () => {
+    try {
+      // Top 10 by views, already sorted by the backend
+      const response = await bookAPI.getTrendingBooks(10);
+      setBooks(response.data);
+    } catch (error) {
+      console.error('Error fetching trending books:', error);
+      setBooks([]);
+    }
+  };
+
+  const trendingBooks = books.map((book) => ({
+    id: book.id,
+    title: book.name,
+    views: `${(book.views || 0).toLocaleString()} lượt xem`
+  }));
 
   return (
     <div className="trending-section">
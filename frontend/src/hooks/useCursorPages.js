@@ -0,0 +1,68 @@
+import { useState, useEffect, useCallback, useRef } from 'react';
+import { bookAPI } from '../services/api';
+
+// Phân trang keyset: nhớ con trỏ của từng trang đã đi qua để quay lại / đi tiếp
+// cursors[i] là con trỏ để tải trang i + 1 (trang 1 không cần con trỏ)
+const useCursorPages = (pageSize, sort = 'newest', enabled = true) => {
+  const [books, setBooks] = useState([]);
+  const [total, setTotal] = useState(0);
+  const [currentPage, setCurrentPage] = useState(1);
+  const [cursors, setCursors] = useState([null]);
+  const [loading, setLoading] = useState(enabled);
+  const requestId = useRef(0);
+
+  const loadPage = useCallback(async (page, cursor) => {
+    const id = ++requestId.current;
+    setLoading(true);
+    try {
+      const response = await bookAPI.getBooksPage(pageSize, sort, cursor || undefined);
+      if (id !== requestId.current) return;
+      const { items, nextCursor, hasMore, total: count } = response.data;
+      setBooks(items);
+      setTotal(count);
+      setCurrentPage(page);
+      setCursors(prev => {
+        const known = prev.slice(0, page);
+        return hasMore ? [...known, nextCursor] : known;
+      });
+    } catch (error) {
+      if (id !== requestId.current) return;
+      console.error('Error fetching books:', error);
+      setBooks([]);
+    } finally {
+      if (id === requestId.current) setLoading(false);
+    }
+  }, [pageSize, sort]);
+
+  // Tải lại từ trang đầu khi đổi cách sắp xếp
+  useEffect(() => {
+    if (!enabled) return;
+    setCursors([null]);
+    loadPage(1, null);
+  }, [enabled, loadPage]);
+
+  const goToPage = useCallback((page) => {
+    if (page < 1 || page > cursors.length) return;
+    loadPage(page, cursors[page - 1]);
+  }, [cursors, loadPage]);
+
+  const reload = useCallback(() => {
+    setCursors([null]);
+    loadPage(1, null);
+  }, [loadPage]);
+
+  return {
+    books,
+    total,
+    loading,
+    currentPage,
+    // Tổng số sách được cache phía server, nên không để nó chặn trang kế tiếp đã biết
+    totalPages: Math.max(1, Math.ceil(total / pageSize), cursors.length),
+    // Chỉ nhảy được tới những trang đã biết con trỏ
+    reachablePages: cursors.length,
+    goToPage,
+    reload
+  };
+};
+
+export default useCursorPages;
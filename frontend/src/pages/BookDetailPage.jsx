@@ -2,7 +2,7 @@ import { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { bookAPI } from '../services/api';
 import { historyStorage } from '../utils/historyStorage';
-import { API_BASE_URL } from '../config/config';
+import { thumbnailSrcSet, thumbnailUrl } from '../utils/thumbnail';
 import './BookDetailPage.css';
 
 const BookDetailPage = () => {
@@ -50,8 +50,9 @@ const BookDetailPage = () => {
     );
   }
 
-  const thumbnailUrl = (book.thumbnailPath && book.thumbnailPath !== 'NULL')
-    ? `${API_BASE_URL}/api/thumbnails/book_${book.id}.jpg`
+  const hasThumbnail = book.thumbnailPath && book.thumbnailPath !== 'NULL';
+  const coverUrl = hasThumbnail
+    ? thumbnailUrl(book, 300)
     : 'data:image/svg+xml,%3Csvg xmlns="http://www.w3.org/2000/svg" width="200" height="280" viewBox="0 0 200 280"%3E%3Crect fill="%232a2a2a" width="200" height="280"/%3E%3Ctext x="50%25" y="50%25" dominant-baseline="middle" text-anchor="middle" font-family="Arial" font-size="18" fill="%23999"%3ENo Cover%3C/text%3E%3C/svg%3E';
 
   return (
@@ -63,7 +64,13 @@ const BookDetailPage = () => {
 
         <div className="book-detail-content">
           <div className="book-cover-section">
-            <img src={thumbnailUrl} alt={book.name} className="book-cover-large" />
+            <img
+              src={coverUrl}
+              srcSet={hasThumbnail ? thumbnailSrcSet(book, [300, 600]) : undefined}
+              sizes="(max-width: 768px) 60vw, 300px"
+              alt={book.name}
+              className="book-cover-large"
+            />
           </div>
 
           <div className="book-info-section">
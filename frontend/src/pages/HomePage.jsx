@@ -1,35 +1,24 @@
-import { useState, useEffect, useRef } from 'react';
+import { useRef } from 'react';
 import BookCard from '../components/BookCard';
 import TrendingSection from '../components/TrendingSection';
 import Pagination from '../components/Pagination';
-import { bookAPI } from '../services/api';
+import useCursorPages from '../hooks/useCursorPages';
 import './HomePage.css';
 
 const HomePage = () => {
-  const [books, setBooks] = useState([]);
-  const [loading, setLoading] = useState(true);
-  const [currentPage, setCurrentPage] = useState(1);
   const booksPerPage = 24;
   const booksRef = useRef(null);
+  // Mỗi trang tải riêng từ server theo con trỏ, mới nhất trước
+  const {
+    books,
+    loading,
+    currentPage,
+    totalPages,
+    reachablePages,
+    goToPage
+  } = useCursorPages(booksPerPage, 'newest');
 
-  useEffect(() => {
-    fetchBooks();
-  }, []);
-
-  const fetchBooks = async () => {
-    try {
-      const response = await bookAPI.getAllBooks();
-      // Lưu toàn bộ sách để TrendingSection có thể sort đúng
-      setBooks(response.data);
-    } catch (error) {
-      console.error('Error fetching books:', error);
-      setBooks([]);
-    } finally {
-      setLoading(false);
-    }
-  };
-
-  if (loading) {
+  if (loading && books.length === 0) {
     return (
       <div className="homepage">
         <div className="container">
@@ -39,19 +28,13 @@ const HomePage = () => {
     );
   }
 
-  const totalPages = Math.ceil(books.length / booksPerPage);
-  const paginatedBooks = books.slice(
-    (currentPage - 1) * booksPerPage,
-    currentPage * booksPerPage
-  );
-
   return (
     <div className="homepage">
       <div className="container">
         <div className="content-wrapper">
           <div className="books-section" ref={booksRef}>
             <div className="books-grid">
-              {paginatedBooks.map(book => (
+              {books.map(book => (
                 <BookCard 
                   key={book.id} 
                   book={book}
@@ -60,18 +43,19 @@ const HomePage = () => {
             </div>
 
             {/* Pagination */}
-            {!loading && books.length > booksPerPage && (
+            {totalPages > 1 && (
               <Pagination
                 currentPage={currentPage}
                 totalPages={totalPages}
-                onPageChange={setCurrentPage}
+                reachablePages={reachablePages}
+                onPageChange={goToPage}
                 scrollRef={booksRef}
               />
             )}
           </div>
 
-          {/* TrendingSection nhận toàn bộ sách để sort đúng */}
-          <TrendingSection books={books} />
+          {/* TrendingSection tự lấy top sách từ /api/books/trending */}
+          <TrendingSection />
         </div>
       </div>
     </div>
@@ -3,6 +3,8 @@ import BookCard from '../components/BookCard';
 import { bookAPI } from '../services/api';
 import './HotBooksPage.css';
 
+const HOT_BOOKS_LIMIT = 100;
+
 const HotBooksPage = () => {
   const [books, setBooks] = useState([]);
   const [loading, setLoading] = useState(true);
@@ -13,10 +15,9 @@ const HotBooksPage = () => {
 
   const fetchHotBooks = async () => {
     try {
-      const response = await bookAPI.getAllBooks();
-      // Sort by views descending to get hot books
-      const sortedBooks = response.data.sort((a, b) => (b.views || 0) - (a.views || 0));
-      setBooks(sortedBooks);
+      // Backend returns books already sorted by views descending
+      const response = await bookAPI.getTrendingBooks(HOT_BOOKS_LIMIT);
+      setBooks(response.data);
     } catch (error) {
       console.error('Error fetching hot books:', error);
       setBooks([]);
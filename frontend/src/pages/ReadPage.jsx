@@ -17,6 +17,7 @@ const ReadPage = () => {
   const [currentPage, setCurrentPage] = useState(1);
   const [totalPages, setTotalPages] = useState(0);
   const [isHeaderVisible, setIsHeaderVisible] = useState(true);
+  const [pdfReady, setPdfReady] = useState(false);
   const hideTimerRef = useRef(null);
   const headerRef = useRef(null);
   const iframeRef = useRef(null);
@@ -120,8 +121,14 @@ const ReadPage = () => {
 
   const loadPdfInfo = async () => {
     try {
-      const pdfUrl = `${API_BASE_URL}/api/books/${id}/pdf`;
-      const loadingTask = pdfjsLib.getDocument(pdfUrl);
+      // Range-capable endpoint: pdf.js only fetches the bytes it needs instead of the whole book
+      const pdfUrl = `${API_BASE_URL}/api/books/${id}/stream`;
+      const loadingTask = pdfjsLib.getDocument({
+        url: pdfUrl,
+        disableAutoFetch: true,
+        disableStream: true,
+        rangeChunkSize: 256 * 1024
+      });
       const pdf = await loadingTask.promise;
       setTotalPages(pdf.numPages);
     } catch (error) {
@@ -168,13 +175,22 @@ const ReadPage = () => {
       />
       
       <div className="pdf-container">
+        {/* Server-rendered first page shown while the viewer loads the PDF */}
+        {!pdfReady && !book.bookPath.startsWith('http') && (
+          <img
+            src={`${API_BASE_URL}/api/books/${id}/pages/1?width=${Math.min(1600, Math.round(window.innerWidth * (window.devicePixelRatio || 1)))}`}
+            alt={book.name}
+            className="pdf-first-page"
+          />
+        )}
         <iframe
           ref={iframeRef}
           src={book.bookPath.startsWith('http') 
             ? `https://drive.google.com/file/d/${book.bookPath.match(/id=([^&]+)/)?.[1]}/preview`
-            : `${API_BASE_URL}/api/books/${id}/pdf#toolbar=0`}
+            : `${API_BASE_URL}/api/books/${id}/stream#toolbar=0`}
           title={book.name}
           className="pdf-viewer"
+          onLoad={() => setPdfReady(true)}
         />
       </div>
     </div>
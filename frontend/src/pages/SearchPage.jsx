@@ -3,9 +3,18 @@ import { useSearchParams } from 'react-router-dom';
 import BookCard from '../components/BookCard';
 import Pagination from '../components/Pagination';
 import { bookAPI } from '../services/api';
+import useCursorPages from '../hooks/useCursorPages';
 import { CATEGORIES, AUTHORS } from '../constants/categories';
 import './SearchPage.css';
 
+// Thứ tự sắp xếp phía server khi duyệt toàn bộ sách (phân trang keyset)
+const BROWSE_SORTS = {
+  'update-desc': 'newest',
+  'update-asc': 'oldest',
+  'view-desc': 'views',
+  'view-asc': 'least_viewed'
+};
+
 const SearchPage = () => {
   const [searchParams] = useSearchParams();
   const [searchTerm, setSearchTerm] = useState('');
@@ -19,6 +28,10 @@ const SearchPage = () => {
   const [currentPage, setCurrentPage] = useState(1);
   const resultsPerPage = 12;
   const resultsRef = useRef(null);
+  // Không có từ khóa / bộ lọc: duyệt toàn bộ sách theo từng trang từ server
+  const [browsing, setBrowsing] = useState(false);
+  const [browseSort, setBrowseSort] = useState('newest');
+  const browse = useCursorPages(resultsPerPage, browseSort, browsing);
 
   useEffect(() => {
     const genreParam = searchParams.get('genre');
@@ -39,16 +52,12 @@ const SearchPage = () => {
     }
   }, [searchParams]);
 
-  const fetchBooks = async () => {
-    setLoading(true);
-    try {
-      const response = await bookAPI.getAllBooks();
-      setSearchResults(response.data);
-    } catch (error) {
-      console.error('Error fetching books:', error);
-      setSearchResults([]);
-    } finally {
-      setLoading(false);
+  const fetchBooks = (sort = 'newest') => {
+    if (browsing && sort === browseSort) {
+      browse.reload();
+    } else {
+      setBrowseSort(sort);
+      setBrowsing(true);
     }
   };
 
@@ -77,9 +86,11 @@ const SearchPage = () => {
         const authorLabel = selectedAuthor ? selectedAuthor.label : searchFilters.author;
         response = await bookAPI.searchByAuthor(authorLabel);
       }
-      // Get all books
+      // Không lọc gì: duyệt toàn bộ sách, sắp xếp phía server
       else {
-        response = await bookAPI.getAllBooks();
+        fetchBooks(BROWSE_SORTS[searchFilters.sort] || 'newest');
+        scrollToResults();
+        return;
       }
 
       let results = response.data;
@@ -89,26 +100,31 @@ const SearchPage = () => {
         results = sortResults(results, searchFilters.sort);
       }
 
+      setBrowsing(false);
       setSearchResults(results);
       setCurrentPage(1); // Reset về trang 1
-      
-      // Scroll to results section after search completes
-      if (resultsRef.current) {
-        setTimeout(() => {
-          resultsRef.current.scrollIntoView({ 
-            behavior: 'smooth', 
-            block: 'start' 
-          });
-        }, 100);
-      }
+      scrollToResults();
     } catch (error) {
       console.error('Error searching books:', error);
+      setBrowsing(false);
       setSearchResults([]);
     } finally {
       setLoading(false);
     }
   };
 
+  // Scroll to results section after search completes
+  const scrollToResults = () => {
+    if (resultsRef.current) {
+      setTimeout(() => {
+        resultsRef.current.scrollIntoView({ 
+          behavior: 'smooth', 
+          block: 'start' 
+        });
+      }, 100);
+    }
+  };
+
   const handleSearch = () => {
     performSearch();
   };
@@ -121,10 +137,9 @@ const SearchPage = () => {
       case 'update-asc':
         return sorted.sort((a, b) => new Date(a.updatedAt) - new Date(b.updatedAt));
       case 'view-desc':
-        // Mock sorting by views (you'll need to add views field to backend)
-        return sorted.reverse();
+        return sorted.sort((a, b) => (b.views || 0) - (a.views || 0));
       case 'view-asc':
-        return sorted;
+        return sorted.sort((a, b) => (a.views || 0) - (b.views || 0));
       default:
         return sorted;
     }
@@ -140,6 +155,12 @@ const SearchPage = () => {
     fetchBooks();
   };
 
+  const resultsLoading = browsing ? browse.loading : loading;
+  const resultCount = browsing ? browse.total : searchResults.length;
+  const pageResults = browsing
+    ? browse.books
+    : searchResults.slice((currentPage - 1) * resultsPerPage, currentPage * resultsPerPage);
+
   return (
     <div className="search-page">
       <div className="container">
@@ -226,33 +247,40 @@ const SearchPage = () => {
             <div className="results-header">
               <h2>KẾT QUẢ TÌM KIẾM</h2>
               <span className="results-count">
-                {loading ? (
+                {resultsLoading ? (
                   'Đang tìm kiếm...'
                 ) : (
-                  <>Tìm thấy <strong>{searchResults.length}</strong> kết quả</>
+                  <>Tìm thấy <strong>{resultCount}</strong> kết quả</>
                 )}
               </span>
             </div>
 
             <div className="results-grid">
-              {loading ? (
+              {resultsLoading ? (
                 <div className="loading">Đang tải...</div>
-              ) : searchResults.length > 0 ? (
-                searchResults
-                  .slice((currentPage - 1) * resultsPerPage, currentPage * resultsPerPage)
-                  .map(book => (
-                    <BookCard 
-                      key={book.id} 
-                      book={book}
-                    />
-                  ))
+              ) : pageResults.length > 0 ? (
+                pageResults.map(book => (
+                  <BookCard 
+                    key={book.id} 
+                    book={book}
+                  />
+                ))
               ) : (
                 <div className="no-results">Không tìm thấy kết quả nào</div>
               )}
             </div>
 
             {/* Pagination */}
-            {!loading && searchResults.length > resultsPerPage && (
+            {!resultsLoading && browsing && browse.totalPages > 1 && (
+              <Pagination
+                currentPage={browse.currentPage}
+                totalPages={browse.totalPages}
+                reachablePages={browse.reachablePages}
+                onPageChange={browse.goToPage}
+                scrollRef={resultsRef}
+              />
+            )}
+            {!resultsLoading && !browsing && searchResults.length > resultsPerPage && (
               <Pagination
                 currentPage={currentPage}
                 totalPages={Math.ceil(searchResults.length / resultsPerPage)}
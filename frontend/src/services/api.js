@@ -10,9 +10,13 @@ const api = axios.create({
 
 // Book API
 export const bookAPI = {
-  // Lấy tất cả sách
-  getAllBooks: () => api.get('/books'),
+  // Lấy một trang sách (keyset) - sort: 'newest' | 'oldest' | 'views' | 'least_viewed'
+  getBooksPage: (limit, sort = 'newest', cursor) =>
+    api.get('/books', { params: { limit, sort, cursor } }),
   
+  // Sách hot - top N theo lượt xem
+  getTrendingBooks: (limit = 10) => api.get('/books/trending', { params: { limit } }),
+
   // Lấy sách theo ID
   getBookById: (id) => api.get(`/books/${id}`),
   
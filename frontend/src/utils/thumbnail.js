@@ -0,0 +1,21 @@
+// Thumbnail URLs: the backend serves each cover at 120/300/600px (WebP when the browser accepts it)
+import { API_BASE_URL } from '../config/config';
+
+export const THUMBNAIL_WIDTHS = [120, 300, 600];
+
+// URL of one rendition; updatedAt as ?v= so a regenerated cover is a new URL
+export const thumbnailUrl = (book, width) => {
+  const params = new URLSearchParams();
+  if (width) {
+    params.set('width', width);
+  }
+  if (book.updatedAt) {
+    params.set('v', book.updatedAt);
+  }
+  const query = params.toString();
+  return `${API_BASE_URL}/api/thumbnails/book_${book.id}.jpg${query ? `?${query}` : ''}`;
+};
+
+// srcset with every rendition; the browser picks one from the sizes attribute and screen density
+export const thumbnailSrcSet = (book, widths = THUMBNAIL_WIDTHS) =>
+  widths.map((width) => `${thumbnailUrl(book, width)} ${width}w`).join(', ');